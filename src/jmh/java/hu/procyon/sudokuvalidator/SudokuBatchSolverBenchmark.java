@@ -0,0 +1,66 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks the uniqueness of many puzzles, with {@link SudokuBatchSolver#countSolutions(SudokuState[], int)}
+ * for the engines solving puzzles together and one by one for the others.
+ * The score is in puzzles per second. The {@code vector} engine uses the Vector API only if the benchmark
+ * runs with the {@code jdk.incubator.vector} module (as in the {@code java17} profile).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuBatchSolverBenchmark {
+
+    private static final int PUZZLES = 256;
+
+    @Param({ "bitboard", "vector" })
+    public String engine;
+
+    @Param({ "easy", "hard" })
+    public String puzzles;
+
+    private SudokuSolver solver;
+    private SudokuState[] corpus;
+
+    @Setup
+    public void setup() {
+        solver = SudokuSolvers.create(engine, SudokuHeuristic.MRV);
+        List<SudokuState> set = SudokuBenchmarkCorpus.forName(puzzles);
+        corpus = new SudokuState[PUZZLES];
+        for (int i = 0; i < PUZZLES; i++) {
+            corpus[i] = set.get(i % set.size());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public int countSolutions() {
+        if (solver instanceof SudokuBatchSolver) {
+            return ((SudokuBatchSolver) solver).countSolutions(corpus, 2).length;
+        }
+        int total = 0;
+        for (SudokuState puzzle : corpus) {
+            total += solver.countSolutions(puzzle, 2);
+        }
+        return total;
+    }
+}
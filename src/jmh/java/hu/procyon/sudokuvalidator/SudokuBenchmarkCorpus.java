@@ -0,0 +1,143 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Puzzle sets used by the benchmarks.
+ */
+public final class SudokuBenchmarkCorpus {
+
+    /** Directory of the bundled example puzzles, relative to the project directory. */
+    public static final File EXAMPLE_DIR = new File("example_puzzles");
+
+    private SudokuBenchmarkCorpus() {
+    }
+
+    /**
+     * Gives the puzzles of the set with the given name.
+     * @param name "examples" for the bundled example puzzles, "hard" for the generated minimal puzzles
+     *      or "easy" for generated puzzles with half of the cells empty, most of them solved by propagation
+     * @return the puzzles
+     */
+    public static List<SudokuState> forName(final String name) {
+        switch (name) {
+            case "examples":
+                return examples();
+            case "easy":
+                return generate(SudokuState.DEFAULT_BLOCK_SIZE, 256, 0.5, 20191124L);
+            case "hard":
+                return generateMinimal(32, 20191124L);
+            default:
+                throw new IllegalArgumentException("Unknown puzzle set: " + name);
+        }
+    }
+
+    /**
+     * Parses the bundled example puzzles, skipping those that cannot be parsed.
+     * @return the parseable example puzzles in the order of their file names
+     */
+    public static List<SudokuState> examples() {
+        SudokuStateParser parser = new SudokuStateParser();
+        File[] files = EXAMPLE_DIR.listFiles();
+        if (files == null) {
+            throw new IllegalStateException("Example puzzles not found in " + EXAMPLE_DIR.getAbsolutePath());
+        }
+        Arrays.sort(files);
+        List<SudokuState> puzzles = new ArrayList<>();
+        for (File file : files) {
+            try {
+                puzzles.add(parser.parseFile(file));
+            } catch (SudokuParseException | SudokuStateException e) {
+                // corrupted examples are not used
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Generates minimal puzzles: random solution grids from which digits are removed
+     * in random order as long as the solution stays unique. Such puzzles have
+     * about 22-26 digits and need branching, unlike most of the example puzzles.
+     * @param count the number of puzzles
+     * @param seed the seed of the random generator, so that the set is reproducible
+     * @return the generated puzzles
+     */
+    public static List<SudokuState> generateMinimal(final int count, final long seed) {
+        return generate(SudokuState.DEFAULT_BLOCK_SIZE, count, 1, seed);
+    }
+
+    /**
+     * Generates puzzles of any size like {@link #generateMinimal(int, long)}, but stops removing
+     * digits when the given ratio of the cells is empty, so that the puzzles of different sizes
+     * are comparable.
+     * @param blockSize the block size of the puzzles
+     * @param count the number of puzzles
+     * @param emptyRatio the maximum ratio of the empty cells, 1 for minimal puzzles
+     * @param seed the seed of the random generator, so that the set is reproducible
+     * @return the generated puzzles
+     */
+    public static List<SudokuState> generate(final int blockSize, final int count, final double emptyRatio, final long seed) {
+        Random random = new Random(seed);
+        SudokuSolver solver = new SudokuDancingLinks();
+        List<SudokuState> puzzles = new ArrayList<>(count);
+        while (puzzles.size() < count) {
+            SudokuState puzzle = randomGrid(blockSize, random, solver);
+            int noCells = puzzle.getSize() * puzzle.getSize();
+            List<Integer> cells = new ArrayList<>();
+            for (int cell = 0; cell < noCells; cell++) {
+                cells.add(cell);
+            }
+            Collections.shuffle(cells, random);
+            int noEmpty = 0;
+            for (int cell : cells) {
+                if (noEmpty >= emptyRatio * noCells) {
+                    break;
+                }
+                int row = cell / puzzle.getSize();
+                int column = cell % puzzle.getSize();
+                int digit = puzzle.unsetDigit(row, column);
+                if (solver.countSolutions(puzzle, 2) != 1) {
+                    puzzle.setDigit(row, column, digit);
+                }
+                else {
+                    noEmpty++;
+                }
+            }
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+
+    /**
+     * Gives a random solution grid: the solution of a puzzle with a random first row.
+     */
+    private static SudokuState randomGrid(final int blockSize, final Random random, final SudokuSolver solver) {
+        List<Integer> digits = new ArrayList<>();
+        SudokuState state = new SudokuState(blockSize);
+        for (int digit = 1; digit <= state.getSize(); digit++) {
+            digits.add(digit);
+        }
+        Collections.shuffle(digits, random);
+        for (int column = 0; column < state.getSize(); column++) {
+            state.setDigit(0, column, digits.get(column));
+        }
+        // a few random digits below the first row make the grids more diverse
+        for (int i = 0; i < 6; i++) {
+            int row = 1 + random.nextInt(state.getSize() - 1);
+            int column = random.nextInt(state.getSize());
+            int digit = 1 + random.nextInt(state.getSize());
+            if (state.canSetDigit(row, column, digit)) {
+                state.setDigit(row, column, digit);
+                if (solver.countSolutions(state, 1) == 0) {
+                    state.unsetDigit(row, column);
+                }
+            }
+        }
+        return solver.findSolution(state);
+    }
+}
@@ -0,0 +1,76 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validates a corpus in which every puzzle occurs {@code repeats} times, with and without a result cache,
+ * to show whether the cache pays off. The cache is created empty for every pass over the corpus, so its
+ * misses are measured too. The score is in puzzles per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuCacheBenchmark {
+
+    private static final int PUZZLES = 512;
+
+    @Param({ "easy", "hard" })
+    public String puzzles;
+
+    @Param({ "1", "8" })
+    public int repeats;
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private SudokuBatchValidator validator;
+    private List<SudokuState> corpus;
+
+    @Setup
+    public void setup() {
+        validator = new SudokuBatchValidator(result -> { });
+        validator.setUniquenessChecked(true);
+        int noDistinct = PUZZLES / repeats;
+        List<SudokuState> distinct = "easy".equals(puzzles)
+            ? SudokuBenchmarkCorpus.generate(SudokuState.DEFAULT_BLOCK_SIZE, noDistinct, 0.5, 20191124L)
+            : SudokuBenchmarkCorpus.generateMinimal(noDistinct, 20191124L);
+        corpus = new ArrayList<>(PUZZLES);
+        for (int i = 0; i < PUZZLES; i++) {
+            corpus.add(distinct.get(i % noDistinct));
+        }
+        Collections.shuffle(corpus, new Random(20191124L));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public int validate() {
+        validator.setCache(cached ? new SudokuSolutionCache(PUZZLES) : null);
+        int noValid = 0;
+        for (SudokuState puzzle : corpus) {
+            if (validator.validate(puzzle) == SudokuVerdict.VALID) {
+                noValid++;
+            }
+        }
+        return noValid;
+    }
+}
@@ -0,0 +1,44 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses example puzzle files with {@link SudokuStateParser}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuParserBenchmark {
+
+    @Param({ "basic", "wikipedia", "wikipedia-17", "magazine-part-solved" })
+    public String puzzle;
+
+    private final SudokuStateParser parser = new SudokuStateParser();
+    private File file;
+
+    @Setup
+    public void setup() {
+        file = new File(SudokuBenchmarkCorpus.EXAMPLE_DIR, puzzle);
+    }
+
+    @Benchmark
+    public SudokuState parseFile() throws SudokuParseException, SudokuStateException {
+        return parser.parseFile(file);
+    }
+}
@@ -0,0 +1,60 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Solves generated puzzles of growing size with each solver engine, to show how the solve time
+ * scales with the grid size; one operation is a single puzzle. The puzzles have a unique solution
+ * and half of their cells empty.
+ * <p>
+ * The engines with propagation are measured by default. The in-place back-tracker (and the bitboard
+ * engine, which is the same as the back-tracker for puzzles other than 9×9) can be given with
+ * {@code -p engine=inplace,bitboard}, but without propagation 25×25 puzzles take too long for it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuScalingBenchmark {
+
+    private static final int PUZZLES = 8;
+    private static final double EMPTY_RATIO = 0.5;
+
+    @Param({ "backtrack", "dlx" })
+    public String engine;
+
+    @Param({ "2", "3", "4", "5" })
+    public int blockSize;
+
+    private SudokuSolver solver;
+    private List<SudokuState> corpus;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        solver = SudokuSolvers.create(engine, SudokuHeuristic.MRV);
+        corpus = SudokuBenchmarkCorpus.generate(blockSize, PUZZLES, EMPTY_RATIO, 20201018L + blockSize);
+    }
+
+    @Benchmark
+    public void countSolutions(final Blackhole blackhole) {
+        blackhole.consume(solver.countSolutions(corpus.get(next), 2));
+        next = (next + 1) % corpus.size();
+    }
+}
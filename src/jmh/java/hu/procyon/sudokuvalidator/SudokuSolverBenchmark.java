@@ -0,0 +1,58 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Solves every puzzle of a puzzle set with each solver engine; one operation is the whole set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuSolverBenchmark {
+
+    @Param({ "backtrack", "inplace", "dlx", "bitboard", "parallel" })
+    public String engine;
+
+    @Param({ "examples", "hard" })
+    public String puzzles;
+
+    private SudokuSolver solver;
+    private List<SudokuState> corpus;
+
+    @Setup
+    public void setup() {
+        solver = SudokuSolvers.create(engine, SudokuHeuristic.MRV);
+        corpus = SudokuBenchmarkCorpus.forName(puzzles);
+    }
+
+    @Benchmark
+    public void findSolution(final Blackhole blackhole) {
+        for (SudokuState puzzle : corpus) {
+            blackhole.consume(solver.findSolution(puzzle));
+        }
+    }
+
+    @Benchmark
+    public void countSolutions(final Blackhole blackhole) {
+        for (SudokuState puzzle : corpus) {
+            blackhole.consume(solver.countSolutions(puzzle, 2));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the basic operations of {@link SudokuState}, {@link SudokuBitboard} and {@link SudokuEvaluator}
+ * on the generated hard puzzles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuStateBenchmark {
+
+    private final SudokuEvaluator evaluator = new SudokuEvaluator();
+    private List<SudokuState> corpus;
+    private SudokuState[] puzzles;
+    private SudokuBitboard[] bitboards;
+    private final SudokuBitboard bitboard = new SudokuBitboard();
+    private SudokuCoordinate[] emptyCells;
+    private int[] possibleDigits;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        corpus = SudokuBenchmarkCorpus.forName("hard");
+        puzzles = corpus.toArray(new SudokuState[0]);
+        bitboards = new SudokuBitboard[puzzles.length];
+        emptyCells = new SudokuCoordinate[puzzles.length];
+        possibleDigits = new int[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            emptyCells[i] = evaluator.findLeastAmbigousEmptyCoordinate(puzzles[i]);
+            long candidates = puzzles[i].getCandidateMask(emptyCells[i].row, emptyCells[i].column);
+            possibleDigits[i] = Long.numberOfTrailingZeros(candidates);
+            bitboards[i] = new SudokuBitboard(puzzles[i]);
+        }
+    }
+
+    private int next() {
+        index = index + 1 < puzzles.length ? index + 1 : 0;
+        return index;
+    }
+
+    @Benchmark
+    public SudokuState copy() {
+        return puzzles[next()].copy();
+    }
+
+    @Benchmark
+    public SudokuBitboard copyBitboard() {
+        bitboard.copyFrom(bitboards[next()]);
+        return bitboard;
+    }
+
+    /**
+     * Sets a possible digit in an empty cell of a copy of the bitboard.
+     */
+    @Benchmark
+    public boolean setDigitBitboard() {
+        int i = next();
+        bitboard.copyFrom(bitboards[i]);
+        return bitboard.setDigit(emptyCells[i].row * 9 + emptyCells[i].column, possibleDigits[i]);
+    }
+
+    /**
+     * Sets a possible digit in an empty cell and clears it again.
+     */
+    @Benchmark
+    public int setAndUnsetDigit() {
+        int i = next();
+        SudokuCoordinate cell = emptyCells[i];
+        puzzles[i].setDigit(cell.row, cell.column, possibleDigits[i]);
+        return puzzles[i].unsetDigit(cell.row, cell.column);
+    }
+
+    @Benchmark
+    public SudokuCoordinate findLeastAmbigousEmptyCoordinate() {
+        return evaluator.findLeastAmbigousEmptyCoordinate(puzzles[next()]);
+    }
+}
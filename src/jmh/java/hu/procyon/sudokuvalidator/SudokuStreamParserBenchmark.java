@@ -0,0 +1,110 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a multi-puzzle file of the generated hard puzzles, in the one-line or in the
+ * comma separated format, with {@link SudokuStreamParser} and {@link SudokuMappedParser},
+ * or the same puzzles in the packed binary format with {@link SudokuBinaryParser}
+ * (where the text format does not matter).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SudokuStreamParserBenchmark {
+
+    private static final int REPEAT = 100;
+
+    @Param({ "stream", "mapped", "binary" })
+    public String parser;
+
+    @Param({ "oneline", "comma" })
+    public String format;
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        List<SudokuState> puzzles = SudokuBenchmarkCorpus.forName("hard");
+        file = File.createTempFile("sudoku", ".txt");
+        if ("binary".equals(parser)) {
+            try (SudokuBinaryWriter out = new SudokuBinaryWriter(file, SudokuState.DEFAULT_BLOCK_SIZE, false)) {
+                for (int i = 0; i < REPEAT; i++) {
+                    for (SudokuState puzzle : puzzles) {
+                        out.write(puzzle);
+                    }
+                }
+            }
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < REPEAT; i++) {
+                for (SudokuState puzzle : puzzles) {
+                    out.println("oneline".equals(format) ? toOneLine(puzzle) : puzzle.toString() + "\n");
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Parses every record of the file.
+     * @return the number of records
+     */
+    @Benchmark
+    public int parseAll() throws IOException, SudokuParseException, SudokuStateException {
+        try (SudokuRecordParser records = open()) {
+            while (records.next() != null) {
+                // parse only
+            }
+            return records.getNumberOfRecords();
+        }
+    }
+
+    private SudokuRecordParser open() throws IOException {
+        switch (parser) {
+            case "mapped":
+                return new SudokuMappedParser(file);
+            case "binary":
+                return new SudokuBinaryParser(file);
+            default:
+                return new SudokuStreamParser(new FileReader(file));
+        }
+    }
+
+    private static String toOneLine(final SudokuState puzzle) {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < puzzle.getSize(); row++) {
+            for (int column = 0; column < puzzle.getSize(); column++) {
+                int digit = puzzle.getDigit(row, column);
+                sb.append(digit == 0 ? '.' : (char) ('0' + digit));
+            }
+        }
+        return sb.toString();
+    }
+}
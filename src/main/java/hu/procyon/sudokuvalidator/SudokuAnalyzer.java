@@ -0,0 +1,74 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Cheap analysis of a puzzle before it is solved, which rejects puzzles that obviously have no
+ * (unique) solution in a single pass over the table, instead of a search.
+ * <p>
+ * The checks are made in the order of {@link SudokuCheck}: an empty cell without possible digits,
+ * a digit without a possible cell in a row, column or block, and, if a unique solution is required,
+ * fewer givens than {@link #MIN_UNIQUE_GIVENS} in a 9×9 puzzle. A puzzle passing every check may still
+ * have no solution. The class is thread-safe.
+ */
+public class SudokuAnalyzer {
+
+    /** The least number of givens of a 9×9 puzzle with a unique solution (McGuire, Tugemann and Civario, 2012). */
+    public static final int MIN_UNIQUE_GIVENS = 17;
+
+    private static final String[] UNIT_NAMES = { "row", "column", "block" };
+
+    /**
+     * Analyzes a puzzle.
+     * @param state the puzzle, which is not modified
+     * @param uniquenessChecked whether the puzzle must have a unique solution
+     * @return the first failed check, or null if the puzzle passes every check
+     */
+    public SudokuFinding analyze(final SudokuState state, final boolean uniquenessChecked) {
+        SudokuFinding finding = findCellWithoutCandidate(state);
+        if (finding == null) {
+            finding = findDigitWithoutPlace(state);
+        }
+        if (finding == null && uniquenessChecked && state.getBlockSize() == SudokuState.DEFAULT_BLOCK_SIZE
+                && state.getNumberOfDigits() < MIN_UNIQUE_GIVENS) {
+            finding = new SudokuFinding(SudokuCheck.TOO_FEW_GIVENS, "Number of given digits is " + state.getNumberOfDigits()
+                + ", a unique solution needs at least " + MIN_UNIQUE_GIVENS);
+        }
+        return finding;
+    }
+
+    private static SudokuFinding findCellWithoutCandidate(final SudokuState state) {
+        for (int row = 0; row < state.getSize(); row++) {
+            for (int column = 0; column < state.getSize(); column++) {
+                if (!state.isDigitSet(row, column) && state.getCandidateMask(row, column) == 0) {
+                    return new SudokuFinding(SudokuCheck.NO_CANDIDATE_CELL,
+                        "Cell " + new SudokuCoordinate(row, column) + " has no possible digit");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a unit (row, column or block) in which a digit is neither set nor possible.
+     */
+    private static SudokuFinding findDigitWithoutPlace(final SudokuState state) {
+        int size = state.getSize();
+        int blockSize = state.getBlockSize();
+        long allDigits = ((1L << size) - 1) << 1;
+        for (int kind = 0; kind < UNIT_NAMES.length; kind++) {
+            for (int unit = 0; unit < size; unit++) {
+                long covered = 0;
+                for (int i = 0; i < size; i++) {
+                    int row = kind == 0 ? unit : kind == 1 ? i : unit / blockSize * blockSize + i / blockSize;
+                    int column = kind == 0 ? i : kind == 1 ? unit : unit % blockSize * blockSize + i % blockSize;
+                    covered |= state.getCandidateMask(row, column) | 1L << state.getDigit(row, column);
+                }
+                long missing = allDigits & ~covered;
+                if (missing != 0) {
+                    return new SudokuFinding(SudokuCheck.NO_PLACE_FOR_DIGIT, "Digit " + Long.numberOfTrailingZeros(missing)
+                        + " has no place in " + UNIT_NAMES[kind] + " " + unit);
+                }
+            }
+        }
+        return null;
+    }
+}
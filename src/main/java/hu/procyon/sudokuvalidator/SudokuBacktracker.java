@@ -1,17 +1,82 @@
 package hu.procyon.sudokuvalidator;
 
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class implements the back-tracking algorithm for {@code SudokuState}.
  * Instantiate and use its {@link #findSolution(SudokuState)} method to find a solution
  * for a current Sudoku state.
+ * <p>
+ * Optionally, a {@link SudokuPropagator} can be given, which is run on the starting
+ * state and on every new state of the search, so that forced digits are set without
+ * branching and contradictions cut the search early.
+ * <p>
+ * In parallel mode (see {@link #setParallel(ForkJoinPool, int)}) the top levels of the search
+ * tree are split into fork/join tasks, one for each possible step, and the subtrees below are
+ * searched sequentially by the tasks. Every task stops as soon as the first solution is found,
+ * or the solution limit is reached when counting solutions.
+ * <p>
+ * The search stops when the budget of its statistics (see {@link SudokuSolverStats#setBudget(long, long)})
+ * is exceeded; in parallel mode the tasks share the budget.
  */
-public class SudokuBacktracker {
+public class SudokuBacktracker implements SudokuSolver {
 
-    private SudokuEvaluator eval = new SudokuEvaluator();
+    private final SudokuHeuristic heuristic;
+    private final SudokuEvaluator eval;
+    private final SudokuPropagator propagator;
+    private final SudokuSolverStats stats = new SudokuSolverStats();
+    private ForkJoinPool pool;
+    private int splitDepth;
+    private SudokuState firstSolution;
+
+    /**
+     * Creates a back-tracker without constraint propagation.
+     */
+    public SudokuBacktracker() {
+        this(null);
+    }
+
+    /**
+     * Creates a back-tracker using the given constraint propagation stage.
+     * @param propagator the propagation stage, or null for none
+     */
+    public SudokuBacktracker(final SudokuPropagator propagator) {
+        this(propagator, SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates a back-tracker using the given constraint propagation stage and cell selection heuristic.
+     * @param propagator the propagation stage, or null for none
+     * @param heuristic the cell selection heuristic
+     */
+    public SudokuBacktracker(final SudokuPropagator propagator, final SudokuHeuristic heuristic) {
+        this.propagator = propagator;
+        this.heuristic = heuristic;
+        this.eval = new SudokuEvaluator(heuristic);
+    }
+
+    /**
+     * Switches to parallel mode, in which the first {@code splitDepth} levels of the search
+     * tree are split into tasks of the given pool. The propagation stage is shared by the
+     * tasks, so it must be thread-safe.
+     * @param pool the pool running the tasks, or null to switch back to sequential mode
+     * @param splitDepth the number of levels to be split, at least 1
+     */
+    public void setParallel(final ForkJoinPool pool, final int splitDepth) {
+        if (pool != null && splitDepth < 1) {
+            throw new IllegalArgumentException("Split depth must be positive: " + splitDepth);
+        }
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
 
     /**
      * Finds a solution for the given {@code SudokuState} if there is one or
@@ -20,35 +85,128 @@ public class SudokuBacktracker {
      * @param initial the starting Sudoku table state
      * @return final state or null if there is no solution
      */
+    @Override
     public SudokuState findSolution(final SudokuState initial) {
+        Solutions solutions = search(initial, 1);
+        return solutions.first.get();
+    }
+
+    /**
+     * Counts the solutions of the given {@code SudokuState}, but stops the search
+     * as soon as {@code limit} solutions are found.
+     * <p>
+     * With a limit of 2, the result tells whether the puzzle has no solution,
+     * a unique solution or more solutions.
+     *
+     * @param initial the starting Sudoku table state
+     * @param limit the maximum number of solutions to be found, at least 1
+     * @return the number of solutions, but at most {@code limit}
+     */
+    @Override
+    public int countSolutions(final SudokuState initial, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+        }
+        return Math.min(search(initial, limit).count.get(), limit);
+    }
+
+    @Override
+    public SudokuState getFirstSolution() {
+        return firstSolution;
+    }
+
+    @Override
+    public SudokuSolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Searches the state space until {@code limit} solutions are found or the
+     * space is exhausted, sequentially or in parallel.
+     */
+    private Solutions search(final SudokuState initial, final int limit) {
+        stats.reset();
+        Solutions solutions = new Solutions(limit);
+        SudokuState start = initial.copy();
+        if (propagate(start, stats)) {
+            if (pool == null) {
+                search(start, 0, eval, stats, solutions);
+            }
+            else {
+                pool.invoke(new SearchTask(start, 0, solutions));
+            }
+        }
+        firstSolution = solutions.first.get();
+        return solutions;
+    }
+
+    /**
+     * Searches the subtree of the given state sequentially, until the search space is exhausted
+     * or enough solutions are found (possibly by other tasks).
+     */
+    private void search(final SudokuState start, final int startDepth, final SudokuEvaluator eval,
+                        final SudokuSolverStats stats, final Solutions solutions) {
         Deque<BacktrackState> stack = new LinkedList<>();
-        stack.push(getBacktrackState(initial.copy()));
-        while (!stack.isEmpty()) {
+        stack.push(getBacktrackState(start, startDepth, eval, stats));
+        while (!stack.isEmpty() && !solutions.done && !stats.isAborted()) {
             SudokuState state = stack.peek().state;
             if (state.isFull()) {
-                return state;
+                solutions.add(state);
+                stack.remove();
+                continue;
             }
             Iterator<SudokuStep> stepIterator = stack.peek().stepIterator;
             if (stepIterator != null && stepIterator.hasNext()) {
-                SudokuStep step = stepIterator.next();
-                SudokuState newState = state.copy();
-                newState.setDigit(step.coordinate.row, step.coordinate.column, step.digit);
-                stack.push(getBacktrackState(newState));
+                SudokuState newState = nextState(state, stepIterator.next(), stats);
+                if (newState != null) {
+                    stack.push(getBacktrackState(newState, startDepth + stack.size(), eval, stats));
+                }
             }
             else {
                 stack.remove();
+                stats.backtrack();
             }
         }
-        return null;
+        if (stats.isAborted()) {
+            // the other tasks stop too
+            solutions.done = true;
+        }
+    }
+
+    /**
+     * Gives the state after the given step and the propagation, or null if it has no solution.
+     */
+    private SudokuState nextState(final SudokuState state, final SudokuStep step, final SudokuSolverStats stats) {
+        SudokuState newState = state.copy();
+        newState.setDigit(step.coordinate.row, step.coordinate.column, step.digit);
+        return propagate(newState, stats) ? newState : null;
+    }
+
+    private boolean propagate(final SudokuState state, final SudokuSolverStats stats) {
+        if (propagator == null) {
+            return true;
+        }
+        int noDigits = state.getNumberOfDigits();
+        boolean result = propagator.propagate(state);
+        stats.forced(state.getNumberOfDigits() - noDigits);
+        return result;
     }
 
     /**
      * Returns new state for the back-track based on the given Sudoku state.
      * @param state the newly reached {@link SudokuState}.
+     * @param depth the depth of the state in the search tree
      * @return back-track state with Sudoku state and an iterator with the possible steps.
      */
-    private BacktrackState getBacktrackState(SudokuState state) {
+    private static BacktrackState getBacktrackState(SudokuState state, int depth, SudokuEvaluator eval, SudokuSolverStats stats) {
+        stats.node();
         Iterator<SudokuStep> stepIterator = eval.getStepIterator(state);
+        if (stats.isDetailed()) {
+            stats.depth(depth);
+            if (stepIterator != null) {
+                stats.branch(SudokuEvaluator.getNumberOfRemainingSteps(stepIterator));
+            }
+        }
         return new BacktrackState(state, stepIterator);
     }
 
@@ -56,7 +214,7 @@ public class SudokuBacktracker {
      * Data class for storing state for the back-tracking algorithm. It contains the
      * Sudoku state (in a {@link SudokuState} class) and in iterator for the possible steps.
      */
-    private class BacktrackState {
+    private static class BacktrackState {
         final SudokuState state;
         final Iterator<SudokuStep> stepIterator;
         private BacktrackState(SudokuState state, Iterator<SudokuStep> stepIterator) {
@@ -64,4 +222,94 @@ public class SudokuBacktracker {
             this.stepIterator = stepIterator;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The solutions found by a search, shared by the tasks in parallel mode.
+     */
+    private static class Solutions {
+        final int limit;
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReference<SudokuState> first = new AtomicReference<>();
+        /** Set when the limit is reached, to stop every task. */
+        volatile boolean done = false;
+
+        Solutions(final int limit) {
+            this.limit = limit;
+        }
+
+        void add(final SudokuState solution) {
+            first.compareAndSet(null, solution);
+            if (count.incrementAndGet() >= limit) {
+                done = true;
+            }
+        }
+    }
+
+    /**
+     * Fork/join task searching the subtree of a state. Above the split depth it forks a task
+     * for every possible step, below it searches sequentially with its own evaluator and statistics.
+     */
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 3307545296417683740L;
+
+        private final SudokuState state;
+        private final int depth;
+        private final Solutions solutions;
+
+        SearchTask(final SudokuState state, final int depth, final Solutions solutions) {
+            this.state = state;
+            this.depth = depth;
+            this.solutions = solutions;
+        }
+
+        @Override
+        protected void compute() {
+            if (solutions.done) {
+                return;
+            }
+            SudokuSolverStats taskStats = new SudokuSolverStats();
+            taskStats.setDetailed(stats.isDetailed());
+            taskStats.shareBudget(stats);
+            SudokuEvaluator taskEval = new SudokuEvaluator(heuristic);
+            if (depth >= splitDepth) {
+                search(state, depth, taskEval, taskStats, solutions);
+            }
+            else {
+                split(taskEval, taskStats);
+            }
+            synchronized (stats) {
+                stats.add(taskStats);
+            }
+        }
+
+        private void split(final SudokuEvaluator taskEval, final SudokuSolverStats taskStats) {
+            taskStats.node();
+            if (taskStats.isAborted()) {
+                solutions.done = true;
+                return;
+            }
+            if (state.isFull()) {
+                solutions.add(state);
+                return;
+            }
+            Iterator<SudokuStep> stepIterator = taskEval.getStepIterator(state);
+            if (taskStats.isDetailed()) {
+                taskStats.depth(depth);
+                if (stepIterator != null) {
+                    taskStats.branch(SudokuEvaluator.getNumberOfRemainingSteps(stepIterator));
+                }
+            }
+            List<SearchTask> subtasks = new ArrayList<>();
+            while (stepIterator != null && stepIterator.hasNext()) {
+                SudokuState newState = nextState(state, stepIterator.next(), taskStats);
+                if (newState != null) {
+                    subtasks.add(new SearchTask(newState, depth + 1, solutions));
+                }
+            }
+            if (subtasks.isEmpty()) {
+                taskStats.backtrack();
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
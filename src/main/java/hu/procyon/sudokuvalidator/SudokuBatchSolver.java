@@ -0,0 +1,20 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * A solver engine that solves many puzzles together faster than one by one, such as {@link SudokuLockstepSolver}.
+ * {@link SudokuBatchValidator} gives such an engine every puzzle of a batch it validates at once.
+ */
+public interface SudokuBatchSolver extends SudokuSolver {
+
+    /**
+     * Counts the solutions of each puzzle like {@link #countSolutions(SudokuState, int)}. The budget of the
+     * statistics applies to the search of each puzzle, and the statistics are those of every puzzle together.
+     *
+     * @param puzzles the starting Sudoku table states, which are not modified
+     * @param limit the maximum number of solutions to be found for a puzzle, at least 1
+     * @return the number of solutions of each puzzle, but at most {@code limit}; -1 for a puzzle whose
+     *      search was aborted before {@code limit} solutions were found
+     * @throws IllegalArgumentException if the limit is less than 1
+     */
+    int[] countSolutions(SudokuState[] puzzles, int limit);
+}
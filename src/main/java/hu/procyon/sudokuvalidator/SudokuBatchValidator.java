@@ -0,0 +1,729 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Validates many Sudoku puzzle files within the same JVM, reusing the parser and
+ * the solver engine for all of them.
+ * <p>
+ * Every puzzle produces exactly one result, which is written as a line on the output
+ * in the form
+ * <pre>
+ * {PATH}\t{VERDICT}\t{CODE}
+ * </pre>
+ * where the code is the same as the exit code of the single file mode of
+ * {@link SudokuValidator}. A failing puzzle never stops the processing of the rest: a puzzle
+ * whose validation throws an exception gets the {@link SudokuVerdict#ERROR} verdict.
+ * <p>
+ * An input can be a file, a directory (all regular files below it are validated)
+ * or a glob pattern such as {@code puzzles/*&#47;*.txt}.
+ * <p>
+ * With more than one thread (see {@link #setThreads(int, boolean)}) the puzzles are solved
+ * by a pool of worker threads, each with its own solver engine instance. The inputs are
+ * enumerated and the streams are parsed by the calling thread, which runs puzzles itself
+ * when the queue of the pool is full. Puzzle files are parsed by the workers. If the results are
+ * ordered, the calling thread waits while the results held back behind a slow puzzle fill their window.
+ * {@link #finish()} must be called to wait for the workers.
+ * <p>
+ * Every puzzle is analyzed by a {@link SudokuAnalyzer} before it is solved. Puzzles with an obvious
+ * contradiction are rejected without a search, and the failed check is given in the result.
+ * <p>
+ * The searches can be limited by a budget (see {@link #setBudget(long, long)}). A puzzle that
+ * cannot be decided within the budget gets the {@link SudokuVerdict#UNDETERMINED} verdict,
+ * so that it can be validated again later with a larger budget or another engine.
+ * <p>
+ * If metrics are collected (see {@link #setMetricsCollected(boolean)}), every solved puzzle
+ * gets its parse and solve times and the detailed statistics of its search in its result.
+ */
+public class SudokuBatchValidator {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final int QUEUE_SIZE_PER_THREAD = 64;
+    /** The results held back by the ordered sink per worker thread, several times the queue of the pool. */
+    private static final int REORDER_WINDOW_PER_THREAD = 4 * QUEUE_SIZE_PER_THREAD;
+    /**
+     * The search nodes of a cached puzzle before it is looked up by its canonical form, about as long
+     * as computing the form takes. Most puzzles are decided sooner and cached by their grid only.
+     */
+    private static final long CANONICAL_PROBE_NODES = 256;
+
+    private SudokuStateParser parser = new SudokuStateParser();
+    private final SudokuAnalyzer analyzer = new SudokuAnalyzer();
+    private ThreadLocal<SudokuSolver> solvers;
+    private final SudokuSolverStats totalStats = new SudokuSolverStats();
+    private final SudokuResultSink out;
+    private SudokuSolutionCache cache;
+    private SudokuResultSink sink;
+    /** The sink if it orders the results, whose window the submitter waits for. */
+    private SudokuOrderedSink orderedSink;
+    private ThreadPoolExecutor pool;
+
+    private boolean uniquenessChecked = false;
+    private boolean metricsCollected = false;
+    private long maxNodes = 0;
+    private long timeoutMillis = 0;
+    private long nextSequence = 0;
+    private final AtomicInteger noPuzzles = new AtomicInteger();
+    private final AtomicInteger noValidPuzzles = new AtomicInteger();
+
+    /**
+     * Creates a new batch validator writing its result lines to the given stream.
+     * @param out the stream for the result lines
+     */
+    public SudokuBatchValidator(final PrintStream out) {
+        this(new SudokuLineSink(out));
+    }
+
+    /**
+     * Creates a new batch validator giving its results to the given sink.
+     * @param out the sink for the results
+     */
+    public SudokuBatchValidator(final SudokuResultSink out) {
+        this.out = out;
+        this.sink = out;
+        setEngine(SudokuSolvers.DEFAULT, SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Validates a single puzzle file on the calling thread.
+     * @param stateFile the puzzle file
+     * @return the verdict for the puzzle
+     */
+    public SudokuVerdict validate(final File stateFile) {
+        return validateFile(stateFile).verdict;
+    }
+
+    /**
+     * Validates a single puzzle file on the calling thread.
+     * @param stateFile the puzzle file
+     * @return the result for the puzzle, with the failed check if the analysis rejected it
+     */
+    public SudokuResult validateFile(final File stateFile) {
+        return validate(0, stateFile);
+    }
+
+    private SudokuResult validate(final long sequence, final File stateFile) {
+        String source = stateFile.getPath();
+        if (!stateFile.exists()) {
+            // a directory is not a puzzle file, which the parser tells as a parse error
+            return new SudokuResult(sequence, source, SudokuVerdict.NOT_FOUND);
+        }
+        long start = metricsCollected ? System.nanoTime() : 0;
+        SudokuState state;
+        try {
+            state = parser.parseFile(stateFile);
+        } catch (SudokuParseException e) {
+            return new SudokuResult(sequence, source, SudokuVerdict.PARSE_ERROR);
+        } catch (SudokuStateException e) {
+            return new SudokuResult(sequence, source, SudokuVerdict.INVALID);
+        }
+        return validate(sequence, source, state, metricsCollected ? System.nanoTime() - start : 0);
+    }
+
+    /**
+     * Validates a parsed puzzle on the calling thread, measuring the solver if metrics are collected.
+     */
+    SudokuResult validate(final long sequence, final String source, final SudokuState state, final long parseNanos) {
+        return validate(sequence, source, state, parseNanos, false);
+    }
+
+    /**
+     * Validates a parsed puzzle on the calling thread, and keeps a solution in the result if it is asked for.
+     * The solution is taken from the search deciding the verdict if the engine keeps it, so a cached number
+     * of solutions is not used then.
+     */
+    private SudokuResult validate(final long sequence, final String source, final SudokuState state, final long parseNanos,
+                                  final boolean solved) {
+        long start = metricsCollected ? System.nanoTime() : 0;
+        SudokuFinding finding = analyzer.analyze(state, uniquenessChecked);
+        int noSolutions;
+        if (finding != null && finding.check.isContradiction()) {
+            // nothing is searched for this puzzle
+            solvers.get().getStats().reset();
+            noSolutions = 0;
+        }
+        else {
+            noSolutions = countSolutions(state, getLimit(finding), !solved);
+        }
+        SudokuVerdict verdict = getVerdict(finding, noSolutions);
+        SudokuMetrics metrics = metricsCollected
+            ? new SudokuMetrics(parseNanos, System.nanoTime() - start, solvers.get().getStats().copy())
+            : null;
+        SudokuState solution = null;
+        if (solved && noSolutions > 0) {
+            solution = solvers.get().getFirstSolution();
+            if (solution == null) {
+                solution = solvers.get().findSolution(state);
+            }
+        }
+        return new SudokuResult(sequence, source, verdict, metrics, finding, solution);
+    }
+
+    /**
+     * Validates many parsed puzzles on the calling thread. If the engine is a {@link SudokuBatchSolver}
+     * and no metrics are collected, the puzzles that must be searched are given to the engine at once,
+     * otherwise they are validated one by one.
+     * @param sequences the sequence numbers of the puzzles
+     * @param sources the sources of the puzzles
+     * @param states the puzzles
+     * @param parseNanos the parse times of the puzzles
+     * @return the results in the order of the puzzles
+     */
+    SudokuResult[] validate(final long[] sequences, final String[] sources, final SudokuState[] states,
+                            final long[] parseNanos) {
+        SudokuSolver solver = solvers.get();
+        SudokuResult[] results = new SudokuResult[states.length];
+        if (metricsCollected || !(solver instanceof SudokuBatchSolver)) {
+            for (int i = 0; i < states.length; i++) {
+                results[i] = validate(sequences[i], sources[i], states[i], parseNanos[i]);
+            }
+            return results;
+        }
+        SudokuFinding[] findings = new SudokuFinding[states.length];
+        int[] noSolutions = new int[states.length];
+        String[] keys = new String[states.length];
+        // the puzzles to be searched for 1 and 2 solutions
+        List<List<Integer>> searched = Arrays.asList(new ArrayList<Integer>(), new ArrayList<Integer>());
+        for (int i = 0; i < states.length; i++) {
+            findings[i] = analyzer.analyze(states[i], uniquenessChecked);
+            if (findings[i] != null && findings[i].check.isContradiction()) {
+                continue;
+            }
+            int limit = getLimit(findings[i]);
+            keys[i] = cache != null ? cache.getKey(states[i], limit) : null;
+            noSolutions[i] = keys[i] != null ? cache.get(keys[i]) : -1;
+            if (noSolutions[i] < 0) {
+                searched.get(limit - 1).add(i);
+            }
+        }
+        for (int limit = 1; limit <= searched.size(); limit++) {
+            List<Integer> indices = searched.get(limit - 1);
+            if (indices.isEmpty()) {
+                continue;
+            }
+            SudokuState[] puzzles = new SudokuState[indices.size()];
+            for (int j = 0; j < puzzles.length; j++) {
+                puzzles[j] = states[indices.get(j)];
+            }
+            boolean probed = cache != null && isProbed();
+            solver.getStats().setDetailed(false);
+            solver.getStats().setBudget(probed ? CANONICAL_PROBE_NODES : maxNodes, timeoutMillis);
+            int[] counts = ((SudokuBatchSolver) solver).countSolutions(puzzles, limit);
+            synchronized (totalStats) {
+                totalStats.add(solver.getStats());
+            }
+            for (int j = 0; j < counts.length; j++) {
+                int i = indices.get(j);
+                noSolutions[i] = counts[j];
+                if (probed && counts[j] < 0) {
+                    // the batch does not tell the node budget from the timeout, the puzzle is searched again
+                    noSolutions[i] = countCanonical(states[i], limit, keys[i], true);
+                }
+                else if (keys[i] != null && counts[j] >= 0) {
+                    cache.put(keys[i], counts[j]);
+                }
+            }
+        }
+        for (int i = 0; i < states.length; i++) {
+            results[i] = new SudokuResult(sequences[i], sources[i], getVerdict(findings[i], noSolutions[i]), null, findings[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Gives the number of solutions to be searched for a puzzle with the given finding of the analyzer.
+     */
+    private int getLimit(final SudokuFinding finding) {
+        // if the solution is not unique, a single solution tells whether there is any
+        return finding == null && uniquenessChecked ? 2 : 1;
+    }
+
+    /**
+     * Gives the verdict of a puzzle from the finding of the analyzer and the number of solutions found.
+     * @param noSolutions the number of solutions up to the limit, -1 if the search was aborted
+     */
+    private static SudokuVerdict getVerdict(final SudokuFinding finding, final int noSolutions) {
+        if (noSolutions < 0) {
+            return SudokuVerdict.UNDETERMINED;
+        }
+        if (noSolutions == 0) {
+            return SudokuVerdict.INVALID;
+        }
+        return finding == null && noSolutions == 1 ? SudokuVerdict.VALID : SudokuVerdict.NOT_UNIQUE;
+    }
+
+    /**
+     * Validates a parsed puzzle on the calling thread. If uniqueness is checked, a puzzle
+     * with more than one solution gets the {@link SudokuVerdict#NOT_UNIQUE} verdict.
+     * @param state the puzzle
+     * @return the verdict for the puzzle
+     */
+    public SudokuVerdict validate(final SudokuState state) {
+        return validate(0, "", state, 0).verdict;
+    }
+
+    /**
+     * Validates a parsed puzzle on the calling thread like {@link #validate(SudokuState)}, and solves it
+     * with the same search if the engine keeps the solutions it counts.
+     * @param state the puzzle
+     * @return the result for the puzzle, with a solution unless the verdict is {@link SudokuVerdict#INVALID}
+     *      or {@link SudokuVerdict#UNDETERMINED}
+     */
+    public SudokuResult solve(final SudokuState state) {
+        return validate(0, "", state, 0, true);
+    }
+
+    /**
+     * Counts the solutions of a puzzle up to the limit, with the cache if there is one.
+     * A puzzle missing from the cache is searched with a small node budget first, and only a puzzle
+     * not decided within it is looked up by its canonical form (see {@link #countCanonical}).
+     * @param cached whether a number of solutions in the cache may be used instead of a search
+     * @return the number of solutions, or -1 if the search was aborted before it was decided
+     */
+    private int countSolutions(final SudokuState state, final int limit, final boolean cached) {
+        SudokuSolver solver = solvers.get();
+        solver.getStats().setDetailed(metricsCollected);
+        String key = cache != null ? cache.getKey(state, limit) : null;
+        if (key != null && cached) {
+            int noSolutions = cache.get(key);
+            if (noSolutions >= 0) {
+                // nothing is searched for this puzzle
+                solver.getStats().reset();
+                return noSolutions;
+            }
+        }
+        if (key == null || !isProbed()) {
+            return store(key, search(state, limit, maxNodes));
+        }
+        long start = System.nanoTime();
+        int noSolutions = search(state, limit, CANONICAL_PROBE_NODES);
+        if (noSolutions < 0
+                && (timeoutMillis == 0 || System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeoutMillis))) {
+            // aborted by the probe budget, not by the timeout
+            return countCanonical(state, limit, key, cached);
+        }
+        return store(key, noSolutions);
+    }
+
+    /**
+     * Counts the solutions of a puzzle that was not decided within the probe budget: looks it up by its
+     * canonical form, and searches it with the whole budget if the form is not in the cache.
+     * @param key the key of the grid of the puzzle, or null if it is not cached
+     */
+    private int countCanonical(final SudokuState state, final int limit, final String key, final boolean cached) {
+        String canonicalKey = key != null ? cache.getCanonicalKey(state, limit) : null;
+        int noSolutions = canonicalKey != null && cached ? cache.get(canonicalKey) : -1;
+        if (noSolutions >= 0) {
+            cache.put(key, noSolutions);
+            return noSolutions;
+        }
+        noSolutions = store(key, search(state, limit, maxNodes));
+        if (canonicalKey != null && noSolutions >= 0) {
+            cache.put(canonicalKey, noSolutions);
+        }
+        return noSolutions;
+    }
+
+    /**
+     * Tells whether the puzzles missing from the cache are searched with the probe budget first,
+     * that is, whether the budget of the searches is larger than that.
+     */
+    private boolean isProbed() {
+        return maxNodes == 0 || maxNodes > CANONICAL_PROBE_NODES;
+    }
+
+    /**
+     * Counts the solutions of a puzzle with the engine of the thread, adding its statistics to the total.
+     * @return the number of solutions, or -1 if the search was aborted before it was decided
+     */
+    private int search(final SudokuState state, final int limit, final long nodes) {
+        SudokuSolver solver = solvers.get();
+        solver.getStats().setBudget(nodes, timeoutMillis);
+        int noSolutions = solver.countSolutions(state, limit);
+        synchronized (totalStats) {
+            totalStats.add(solver.getStats());
+        }
+        return noSolutions < limit && solver.getStats().isAborted() ? -1 : noSolutions;
+    }
+
+    /**
+     * Stores the number of solutions of a decided puzzle in the cache.
+     * @param key the key of the puzzle, or null if it is not cached
+     * @param noSolutions the number of solutions, or -1 if the puzzle was not decided
+     * @return the number of solutions
+     */
+    private int store(final String key, final int noSolutions) {
+        if (key != null && noSolutions >= 0) {
+            cache.put(key, noSolutions);
+        }
+        return noSolutions;
+    }
+
+    /**
+     * Sets the solver engine used for the puzzles, by default the {@link SudokuSolvers#DEFAULT} engine.
+     * Every thread validating puzzles creates its own instance of the engine.
+     * @param engine the name of the engine in {@link SudokuSolvers}
+     * @param heuristic the cell selection heuristic of the engine
+     * @throws IllegalArgumentException if there is no engine with the given name
+     */
+    public void setEngine(final String engine, final SudokuHeuristic heuristic) {
+        if (!SudokuSolvers.getNames().contains(engine)) {
+            throw new IllegalArgumentException("Unknown solver engine: " + engine);
+        }
+        solvers = ThreadLocal.withInitial(() -> SudokuSolvers.create(engine, heuristic));
+    }
+
+    /**
+     * Sets the budget of the search of every puzzle, by default there is none
+     * (see {@link SudokuSolverStats#setBudget(long, long)}).
+     * @param maxNodes the maximum number of search nodes of a puzzle, 0 for no limit
+     * @param timeoutMillis the maximum solve time of a puzzle in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setBudget(final long maxNodes, final long timeoutMillis) {
+        if (maxNodes < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Search budget must not be negative: " + maxNodes + " nodes, "
+                + timeoutMillis + " ms");
+        }
+        this.maxNodes = maxNodes;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sets the block size of the puzzles in files and streams, by default 3 (9×9 puzzles).
+     * @param blockSize the block size, e.g. 4 for 16×16 puzzles
+     * @throws IllegalArgumentException if the block size is not supported by {@link SudokuState}
+     */
+    public void setBlockSize(final int blockSize) {
+        parser = new SudokuStateParser(blockSize);
+    }
+
+    /**
+     * Gives the block size of the puzzles in files and streams.
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return parser.getBlockSize();
+    }
+
+    /**
+     * Sets the cache of the number of solutions, by default there is none. Repeated puzzles are not
+     * solved again, and their search statistics are empty. A puzzle not decided within a few hundred
+     * search nodes is cached by its canonical form too, so the puzzles equivalent to it are not solved again either.
+     * @param cache the cache, or null for no cache
+     */
+    public void setCache(final SudokuSolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Gives the cache of the number of solutions.
+     * @return the cache, or null if there is none
+     */
+    public SudokuSolutionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the number of worker threads solving the puzzles. With 1 thread (the default)
+     * every puzzle is validated on the calling thread.
+     * @param threads the number of worker threads
+     * @param ordered whether the results must be given to the sink in the order of the input
+     */
+    public void setThreads(final int threads, final boolean ordered) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        finish();
+        if (threads > 1) {
+            pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        orderedSink = threads > 1 && ordered ? new SudokuOrderedSink(out, threads * REORDER_WINDOW_PER_THREAD) : null;
+        sink = orderedSink != null ? orderedSink : out;
+        nextSequence = 0;
+    }
+
+    /**
+     * Waits until every puzzle submitted so far is validated and its result is given to the sink,
+     * then stops the worker threads. Further puzzles are validated on the calling thread,
+     * unless {@link #setThreads(int, boolean)} is called again.
+     */
+    public void finish() {
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // keep waiting for the last puzzles
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pool = null;
+        }
+    }
+
+    /**
+     * Gives the statistics of the solver engines aggregated over every puzzle solved so far.
+     * @return the aggregated statistics
+     */
+    public SudokuSolverStats getTotalStats() {
+        return totalStats;
+    }
+
+    /**
+     * Sets whether the parse and solve times and the detailed search statistics
+     * (see {@link SudokuSolverStats#setDetailed(boolean)}) are collected for every puzzle
+     * and given in its {@link SudokuResult#metrics}.
+     * @param metricsCollected true to collect the metrics
+     */
+    public void setMetricsCollected(final boolean metricsCollected) {
+        this.metricsCollected = metricsCollected;
+        synchronized (totalStats) {
+            totalStats.setDetailed(metricsCollected);
+        }
+    }
+
+    /**
+     * Sets whether a puzzle is valid only if it has exactly one solution.
+     * @param uniquenessChecked true to require a unique solution, false to accept any solvable puzzle
+     */
+    public void setUniquenessChecked(final boolean uniquenessChecked) {
+        this.uniquenessChecked = uniquenessChecked;
+    }
+
+    /**
+     * Tells whether a puzzle is valid only if it has exactly one solution.
+     * @return true if uniqueness is checked
+     */
+    public boolean isUniquenessChecked() {
+        return uniquenessChecked;
+    }
+
+    /**
+     * Validates every puzzle of a multi-puzzle stream (see {@link SudokuStreamParser})
+     * and writes a result line for each of them. The path in the result line is the
+     * name of the stream followed by the 1-based number of the puzzle, e.g. {@code feed.txt:42}.
+     * @param name name of the stream used in the result lines
+     * @param reader the stream of puzzles
+     */
+    public void validateStream(final String name, final Reader reader) {
+        validateStream(name, new SudokuStreamParser(reader, getBlockSize()));
+    }
+
+    /**
+     * Validates every puzzle given by a record parser, such as a {@link SudokuMappedParser},
+     * and writes a result line for each of them, like {@link #validateStream(String, Reader)}.
+     * @param name name of the stream used in the result lines
+     * @param streamParser the parser of the puzzles
+     */
+    public void validateStream(final String name, final SudokuRecordParser streamParser) {
+        while (true) {
+            String source = name + ":" + (streamParser.getNumberOfRecords() + 1);
+            try {
+                long start = metricsCollected ? System.nanoTime() : 0;
+                SudokuState state = streamParser.next();
+                if (state == null) {
+                    break;
+                }
+                submit(source, state, metricsCollected ? System.nanoTime() - start : 0);
+            } catch (SudokuParseException e) {
+                if (e.getLine() < 0) {
+                    // I/O error, the rest of the stream cannot be read
+                    report(name, SudokuVerdict.PARSE_ERROR);
+                    break;
+                }
+                report(source, SudokuVerdict.PARSE_ERROR);
+            } catch (SudokuStateException e) {
+                report(source, SudokuVerdict.INVALID);
+            }
+        }
+    }
+
+    /**
+     * Validates every puzzle file denoted by the given input (a file, a directory or a glob)
+     * and writes a result line for each of them.
+     * @param input file path, directory path or glob pattern
+     */
+    public void validateInput(final String input) {
+        int globStart = indexOfGlob(input);
+        if (globStart >= 0) {
+            validateGlob(input, globStart);
+            return;
+        }
+        File file = new File(input);
+        if (file.isDirectory()) {
+            walk(file.toPath(), null);
+        }
+        else {
+            report(file);
+        }
+    }
+
+    /**
+     * Writes a result line for an input that does not exist.
+     * @param path the path of the missing input
+     */
+    public void reportNotFound(final String path) {
+        report(path, SudokuVerdict.NOT_FOUND);
+    }
+
+    /**
+     * Gives the number of puzzles whose result is given to the sink so far.
+     * @return number of puzzles
+     */
+    public int getNumberOfPuzzles() {
+        return noPuzzles.get();
+    }
+
+    /**
+     * Gives the number of puzzles found valid so far.
+     * @return number of valid puzzles
+     */
+    public int getNumberOfValidPuzzles() {
+        return noValidPuzzles.get();
+    }
+
+    /**
+     * Tells whether every puzzle processed so far is valid.
+     * @return true if there was no failing puzzle
+     */
+    public boolean isAllValid() {
+        return noPuzzles.get() == noValidPuzzles.get();
+    }
+
+    /**
+     * Validates a puzzle file, on a worker thread if there are any.
+     */
+    private void report(final File stateFile) {
+        execute(nextSequence(), stateFile.getPath(), sequence -> validate(sequence, stateFile));
+    }
+
+    /**
+     * Validates a parsed puzzle, on a worker thread if there are any.
+     */
+    private void submit(final String source, final SudokuState state, final long parseNanos) {
+        execute(nextSequence(), source, sequence -> validate(sequence, source, state, parseNanos));
+    }
+
+    private void report(final String source, final SudokuVerdict verdict) {
+        emit(new SudokuResult(nextSequence(), source, verdict));
+    }
+
+    /**
+     * Gives the sequence number of the next puzzle. If the results are ordered, it waits while
+     * the puzzle is too far ahead of the next result to be given to the sink.
+     */
+    private long nextSequence() {
+        if (orderedSink != null) {
+            try {
+                orderedSink.awaitWindow(nextSequence);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return nextSequence++;
+    }
+
+    /**
+     * Runs a validation, on a worker thread if there are any, and gives its result to the sink.
+     * If the validation fails, the puzzle gets the {@link SudokuVerdict#ERROR} verdict,
+     * so that every sequence number has a result and the ordered sink does not wait for it forever.
+     */
+    private void execute(final long sequence, final String source, final LongFunction<SudokuResult> validation) {
+        Runnable task = () -> {
+            SudokuResult result;
+            try {
+                result = validation.apply(sequence);
+            } catch (RuntimeException | StackOverflowError e) {
+                result = new SudokuResult(sequence, source, SudokuVerdict.ERROR);
+            }
+            emit(result);
+        };
+        if (pool != null) {
+            pool.execute(task);
+        }
+        else {
+            task.run();
+        }
+    }
+
+    /**
+     * Counts the result and gives it to the sink.
+     */
+    void emit(final SudokuResult result) {
+        noPuzzles.incrementAndGet();
+        if (result.verdict == SudokuVerdict.VALID) {
+            noValidPuzzles.incrementAndGet();
+        }
+        sink.accept(result);
+    }
+
+    /**
+     * Validates the files matching a glob. The walk starts from the deepest directory
+     * of the pattern that does not contain glob characters.
+     */
+    private void validateGlob(final String pattern, final int globStart) {
+        int separator = Math.max(pattern.lastIndexOf('/', globStart), pattern.lastIndexOf(File.separatorChar, globStart));
+        Path base = separator >= 0 ? Paths.get(pattern.substring(0, separator + 1)) : Paths.get("");
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(separator + 1));
+        if (Files.isDirectory(base.toAbsolutePath())) {
+            walk(base, matcher);
+        }
+    }
+
+    /**
+     * Walks the directory tree and reports the regular files in it,
+     * or only those matching the given matcher (relative to the root) if it is not null.
+     */
+    private void walk(final Path root, final PathMatcher matcher) {
+        try {
+            Files.walkFileTree(root.toAbsolutePath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Path relative = root.toAbsolutePath().relativize(file);
+                    if (attrs.isRegularFile() && (matcher == null || matcher.matches(relative))) {
+                        report(root.resolve(relative).toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    report(file.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            report(root.toFile());
+        }
+    }
+
+    private static int indexOfGlob(final String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,270 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class can be used to parse many {@code SudokuState}s from a file in the packed binary
+ * format written by {@link SudokuBinaryWriter}, decoding the records directly from the bytes
+ * of the memory-mapped file.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes:
+ * <ul>
+ * <li>the magic bytes {@code SDKB},</li>
+ * <li>the version of the format ({@value #VERSION}) in a byte,</li>
+ * <li>the block size of the puzzles (2 or 3) in a byte,</li>
+ * <li>the flags in a byte: bit 0 is set if the records have a result column,</li>
+ * <li>a reserved byte, 0,</li>
+ * <li>the number of records as a big-endian {@code long}, or -1 if the writer was not closed.</li>
+ * </ul>
+ * The records follow, all of the same size. The cells of a puzzle are stored row by row in 4 bits each,
+ * 0 for an empty cell, two cells in a byte from the high bits, so a 9×9 puzzle takes 41 bytes.
+ * If the records have a result column, the puzzle is followed by the exit code of its
+ * {@link SudokuVerdict} in a byte and its solution in the same form as the puzzle, all empty if it has none.
+ * <p>
+ * A record is read entirely before an error is reported, so {@link #next()} can be called again
+ * to continue with the following record. The numbers of the records (from 0) are given instead of line numbers.
+ */
+public class SudokuBinaryParser implements SudokuRecordParser {
+
+    /** Size of the header of the file in bytes. */
+    public static final int HEADER_SIZE = 16;
+    /** The version of the format. */
+    public static final int VERSION = 1;
+    /** The largest block size of the format, so that every digit fits in 4 bits. */
+    public static final int MAX_BLOCK_SIZE = 3;
+    static final byte[] MAGIC = { 'S', 'D', 'K', 'B' };
+    static final int FLAG_RESULTS = 1;
+    static final int COUNT_OFFSET = 8;
+
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+    private final int blockSize;
+    private final int size;
+    private final boolean withResults;
+    private final int puzzleSize;
+    private final int recordSize;
+    private final long count;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    /** Position of the window in the file. */
+    private long windowStart;
+    /** Position of the next record in the window. */
+    private int position;
+
+    private int noRecords = 0;
+    private int verdictCode = -1;
+    private int solutionStart = -1;
+
+    /**
+     * Opens the given file for parsing.
+     * @param file the binary file of Sudoku records
+     * @throws FileNotFoundException if the file is not a regular file
+     * @throws IOException if the file cannot be opened or mapped, or it is not a binary Sudoku file of a known version
+     */
+    public SudokuBinaryParser(final File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    SudokuBinaryParser(final File file, final int windowSize) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // read the whole header
+            }
+            if (header.hasRemaining() || !hasMagic(header) || header.get(4) != VERSION) {
+                throw new IOException("Not a binary Sudoku file of version " + VERSION + ": " + file.getPath());
+            }
+            this.blockSize = header.get(5);
+            if (blockSize < SudokuState.MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+                throw new IOException("Unsupported block size " + blockSize + ": " + file.getPath());
+            }
+            this.size = blockSize * blockSize;
+            this.withResults = (header.get(6) & FLAG_RESULTS) != 0;
+            this.puzzleSize = getPuzzleSize(blockSize);
+            this.recordSize = withResults ? 2 * puzzleSize + 1 : puzzleSize;
+            long headerCount = header.getLong(COUNT_OFFSET);
+            this.count = headerCount >= 0 ? headerCount : (fileSize - HEADER_SIZE) / recordSize;
+            this.windowSize = Math.max(1, windowSize / recordSize) * recordSize;
+            map(HEADER_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tells whether a file starts with the magic bytes of the binary format.
+     * @param file the file
+     * @return true if the file is a binary Sudoku file, false if it is not or cannot be read
+     */
+    public static boolean isBinaryFile(final File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // read the magic bytes
+            }
+            return !magic.hasRemaining() && hasMagic(magic);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasMagic(final ByteBuffer header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives the number of bytes of a puzzle of the given block size.
+     */
+    static int getPuzzleSize(final int blockSize) {
+        int cells = blockSize * blockSize * blockSize * blockSize;
+        return (cells + 1) / 2;
+    }
+
+    @Override
+    public SudokuState next() throws SudokuParseException, SudokuStateException {
+        verdictCode = -1;
+        solutionStart = -1;
+        if (noRecords >= count || windowStart + position >= fileSize) {
+            return null;
+        }
+        try {
+            if (position + recordSize > window.limit()) {
+                if (windowStart + position + recordSize > fileSize) {
+                    // the rest of the file is skipped
+                    noRecords++;
+                    position = (int) (fileSize - windowStart);
+                    throw new SudokuParseException("Record " + (noRecords - 1) + " is truncated", -1, 0);
+                }
+                map(windowStart + position);
+            }
+        } catch (IOException e) {
+            throw new SudokuParseException("Error while reading Sudoku file", e);
+        }
+        int start = position;
+        position += recordSize;
+        noRecords++;
+        if (withResults) {
+            verdictCode = window.get(start + puzzleSize);
+            solutionStart = start + puzzleSize + 1;
+        }
+        SudokuState state = new SudokuState(blockSize);
+        decode(state, start);
+        return state;
+    }
+
+    /**
+     * Sets the digits of a packed puzzle starting at the given position of the window.
+     */
+    private void decode(final SudokuState state, final int start) throws SudokuParseException, SudokuStateException {
+        int cell = 0;
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++, cell++) {
+                int packed = window.get(start + (cell >> 1));
+                int digit = (cell & 1) == 0 ? packed >> 4 & 0xF : packed & 0xF;
+                if (digit > size) {
+                    throw new SudokuParseException("Invalid Sudoku digit: " + digit, noRecords - 1, cell);
+                }
+                if (digit > 0) {
+                    SudokuStateParser.setDigit(state, row, column, digit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the verdict stored for the last record read.
+     * @return the verdict, or null if the records have no result column or the code is not known
+     */
+    public SudokuVerdict getVerdict() {
+        return verdictCode >= 0 ? SudokuVerdict.forCode(verdictCode) : null;
+    }
+
+    /**
+     * Gives the solution stored for the last record read.
+     * @return the solution, or null if the records have no result column or the puzzle has no solution stored
+     * @throws SudokuParseException if the solution cannot be decoded
+     * @throws SudokuStateException if the solution is not valid
+     */
+    public SudokuState getSolution() throws SudokuParseException, SudokuStateException {
+        if (solutionStart < 0) {
+            return null;
+        }
+        SudokuState solution = new SudokuState(blockSize);
+        decode(solution, solutionStart);
+        return solution.getNumberOfDigits() > 0 ? solution : null;
+    }
+
+    /**
+     * Gives the block size of the puzzles in the file.
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Tells whether the records have a verdict and a solution.
+     * @return true if the records have a result column
+     */
+    public boolean hasResults() {
+        return withResults;
+    }
+
+    /**
+     * Gives the number of records in the file, from the header or, if the writer of the file
+     * was not closed, from the size of the file.
+     * @return number of records
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gives the number of the last record read (0-based), or -1 if no record is read yet.
+     * @return number of the last record
+     */
+    @Override
+    public int getRecordLineNumber() {
+        return noRecords - 1;
+    }
+
+    @Override
+    public int getNumberOfRecords() {
+        return noRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        position = 0;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+}
@@ -0,0 +1,161 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes puzzles to a file in the packed binary format described at {@link SudokuBinaryParser},
+ * optionally with their verdicts and solutions.
+ * <p>
+ * The number of records is written in the header when the writer is closed; until then it is -1,
+ * and the parser counts the complete records of the file instead.
+ */
+public class SudokuBinaryWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int blockSize;
+    private final int size;
+    private final boolean withResults;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long count = 0;
+
+    /**
+     * Creates the file, replacing it if it exists, and writes its header.
+     * @param file the binary file
+     * @param blockSize the block size of the puzzles, at most {@link SudokuBinaryParser#MAX_BLOCK_SIZE}
+     * @param withResults whether the records have a verdict and a solution
+     * @throws IllegalArgumentException if the block size is not supported by the format
+     * @throws IOException if the file cannot be created or written
+     */
+    public SudokuBinaryWriter(final File file, final int blockSize, final boolean withResults) throws IOException {
+        if (SudokuState.checkBlockSize(blockSize) > SudokuBinaryParser.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size of the binary format must be at most "
+                + SudokuBinaryParser.MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.size = blockSize * blockSize;
+        this.withResults = withResults;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(SudokuBinaryParser.MAGIC)
+            .put((byte) SudokuBinaryParser.VERSION)
+            .put((byte) blockSize)
+            .put((byte) (withResults ? SudokuBinaryParser.FLAG_RESULTS : 0))
+            .put((byte) 0)
+            .putLong(-1);
+    }
+
+    /**
+     * Writes a puzzle to a file without a result column.
+     * @param puzzle the puzzle
+     * @throws IllegalArgumentException if the block size of the puzzle is not that of the file
+     * @throws IllegalStateException if the file has a result column
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final SudokuState puzzle) throws IOException {
+        if (withResults) {
+            throw new IllegalStateException("The records must have a result");
+        }
+        writePuzzle(puzzle);
+        count++;
+    }
+
+    /**
+     * Writes a puzzle with its verdict and solution to a file with a result column.
+     * @param puzzle the puzzle
+     * @param verdict the verdict of the puzzle
+     * @param solution a solution of the puzzle, or null if none is stored
+     * @throws IllegalArgumentException if the block size of a state is not that of the file
+     * @throws IllegalStateException if the file has no result column
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final SudokuState puzzle, final SudokuVerdict verdict, final SudokuState solution) throws IOException {
+        if (!withResults) {
+            throw new IllegalStateException("The records must not have a result");
+        }
+        writePuzzle(puzzle);
+        reserve(1);
+        buffer.put((byte) verdict.getCode());
+        if (solution != null) {
+            writePuzzle(solution);
+        }
+        else {
+            int puzzleSize = SudokuBinaryParser.getPuzzleSize(blockSize);
+            reserve(puzzleSize);
+            for (int i = 0; i < puzzleSize; i++) {
+                buffer.put((byte) 0);
+            }
+        }
+        count++;
+    }
+
+    /**
+     * Gives the number of records written so far.
+     * @return number of records
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the buffered records and the number of records, then closes the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer countBytes = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            while (countBytes.hasRemaining()) {
+                channel.write(countBytes, SudokuBinaryParser.COUNT_OFFSET + countBytes.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writePuzzle(final SudokuState state) throws IOException {
+        if (state.getBlockSize() != blockSize) {
+            throw new IllegalArgumentException("Block size of the puzzle must be " + blockSize + ": " + state.getBlockSize());
+        }
+        reserve(SudokuBinaryParser.getPuzzleSize(blockSize));
+        int packed = 0;
+        int cell = 0;
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++, cell++) {
+                if ((cell & 1) == 0) {
+                    packed = state.getDigit(row, column) << 4;
+                }
+                else {
+                    buffer.put((byte) (packed | state.getDigit(row, column)));
+                }
+            }
+        }
+        if ((cell & 1) != 0) {
+            buffer.put((byte) packed);
+        }
+    }
+
+    /**
+     * Makes room for the given number of bytes in the buffer.
+     */
+    private void reserve(final int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
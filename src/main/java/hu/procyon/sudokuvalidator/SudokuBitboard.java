@@ -0,0 +1,359 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Packed representation of a 9×9 Sudoku table as bit planes of 81 bits, each
+ * stored in two {@code long} words (cells 0-63 in the low word, cells 64-80 in the high word).
+ * The cells are numbered row by row, so cell {@code row * 9 + column}.
+ * <p>
+ * For every digit there is a plane of the cells where the digit is set and a plane of the
+ * empty cells where the digit can still be set. Setting a digit clears the cell from every
+ * free plane and the peers of the cell (the cells in its row, column and block) from the
+ * free plane of the digit, so checking and enumerating candidates, naked and hidden singles
+ * and copying the whole table are a few word operations.
+ * <p>
+ * {@link SudokuState} remains the representation used by the parser and the API, a bitboard
+ * is created from a state with {@link #load(SudokuState)} and converted back with {@link #toState()}.
+ * Like {@code SudokuState}, a bitboard cannot reach an invalid state by {@link #setDigit(int, int)}.
+ */
+public final class SudokuBitboard {
+
+    private static final int N = 3;
+    private static final int SIZE = N * N;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int LOW_CELLS = Long.SIZE;
+    private static final long HIGH_MASK = (1L << (CELLS - LOW_CELLS)) - 1;
+
+    /** Offset of the planes of the set digits (index 0 is the plane of every set cell). */
+    private static final int PLACED = 0;
+    /** Offset of the planes of the possible digits (index 0 is unused). */
+    private static final int FREE = 2 * (SIZE + 1);
+    private static final int WORDS = 2 * FREE;
+
+    /** Cells of each row, column and block (in this order), low and high words. */
+    private static final long[] UNIT_LOW = new long[3 * SIZE];
+    private static final long[] UNIT_HIGH = new long[3 * SIZE];
+    /** Cells sharing a unit with each cell, without the cell itself. */
+    private static final long[] PEERS_LOW = new long[CELLS];
+    private static final long[] PEERS_HIGH = new long[CELLS];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / SIZE;
+            int column = cell % SIZE;
+            int block = row / N * N + column / N;
+            addCell(cell, row, UNIT_LOW, UNIT_HIGH);
+            addCell(cell, SIZE + column, UNIT_LOW, UNIT_HIGH);
+            addCell(cell, 2 * SIZE + block, UNIT_LOW, UNIT_HIGH);
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / SIZE;
+            int column = cell % SIZE;
+            int block = row / N * N + column / N;
+            for (int unit : new int[] {row, SIZE + column, 2 * SIZE + block}) {
+                PEERS_LOW[cell] |= UNIT_LOW[unit];
+                PEERS_HIGH[cell] |= UNIT_HIGH[unit];
+            }
+            PEERS_LOW[cell] &= ~low(cell);
+            PEERS_HIGH[cell] &= ~high(cell);
+        }
+    }
+
+    private final long[] words = new long[WORDS];
+    private int noDigits = 0;
+
+    /**
+     * Creates an empty table.
+     */
+    public SudokuBitboard() {
+        clear();
+    }
+
+    /**
+     * Creates a table with the digits of the given state.
+     * @param state the state to be converted
+     */
+    public SudokuBitboard(final SudokuState state) {
+        load(state);
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int i = 0; i < FREE; i++) {
+            words[i] = 0;
+        }
+        for (int digit = 1; digit <= SIZE; digit++) {
+            words[FREE + 2 * digit] = -1L;
+            words[FREE + 2 * digit + 1] = HIGH_MASK;
+        }
+        noDigits = 0;
+    }
+
+    /**
+     * Replaces the content of the table by the digits of the given state.
+     * @param state the state to be converted
+     * @throws IllegalArgumentException if the state is not a 9×9 table
+     */
+    public void load(final SudokuState state) {
+        if (state.getSize() != SIZE) {
+            throw new IllegalArgumentException("Bitboards support 9×9 tables only: " + state.getSize());
+        }
+        clear();
+        for (int cell = 0; cell < CELLS; cell++) {
+            int digit = state.getDigit(cell / SIZE, cell % SIZE);
+            if (digit != 0) {
+                setDigit(cell, digit);
+            }
+        }
+    }
+
+    /**
+     * Replaces the content of the table by the content of another one.
+     * @param other the table to be copied
+     */
+    public void copyFrom(final SudokuBitboard other) {
+        System.arraycopy(other.words, 0, words, 0, WORDS);
+        noDigits = other.noDigits;
+    }
+
+    /**
+     * Creates a copy of the table.
+     * @return the copy
+     */
+    public SudokuBitboard copy() {
+        SudokuBitboard copy = new SudokuBitboard();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Converts the table to a {@link SudokuState}.
+     * @return a new state with the same digits
+     */
+    public SudokuState toState() {
+        SudokuState state = new SudokuState();
+        for (int cell = 0; cell < CELLS; cell++) {
+            int digit = getDigit(cell);
+            if (digit != 0) {
+                state.setDigit(cell / SIZE, cell % SIZE, digit);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns whether a digit is set in the given cell.
+     * @param cell the number of the cell (0-80)
+     * @return true if a digit is set
+     */
+    public boolean isDigitSet(final int cell) {
+        return isSet(PLACED, cell);
+    }
+
+    /**
+     * Returns the digit set in the given cell or 0 if it's not set.
+     * @param cell the number of the cell (0-80)
+     * @return the digit 1-9 or 0
+     */
+    public int getDigit(final int cell) {
+        if (isSet(PLACED, cell)) {
+            for (int digit = 1; digit <= SIZE; digit++) {
+                if (isSet(PLACED + 2 * digit, cell)) {
+                    return digit;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tells whether the digit can be set in the given cell, that is, the cell is empty
+     * and the digit is not set in any of its peers.
+     * @param cell the number of the cell (0-80)
+     * @param digit the digit 1-9
+     * @return true if the digit can be set
+     */
+    public boolean canSetDigit(final int cell, final int digit) {
+        return isSet(FREE + 2 * digit, cell);
+    }
+
+    /**
+     * Gives the digits that can still be set in the given cell as a bit mask, like
+     * {@link SudokuState#getCandidateMask(int, int)}.
+     * @param cell the number of the cell (0-80)
+     * @return the mask of the possible digits, 0 if the cell is set
+     */
+    public int getCandidateMask(final int cell) {
+        int mask = 0;
+        int word = cell < LOW_CELLS ? 0 : 1;
+        int shift = cell & (LOW_CELLS - 1);
+        for (int digit = 1; digit <= SIZE; digit++) {
+            mask |= (int) (words[FREE + 2 * digit + word] >>> shift & 1) << digit;
+        }
+        return mask;
+    }
+
+    /**
+     * Sets a digit in the given cell and removes it from the candidates of the peers.
+     * @param cell the number of the cell (0-80)
+     * @param digit the digit 1-9
+     * @return false (without changing the table) if the digit cannot be set
+     */
+    public boolean setDigit(final int cell, final int digit) {
+        if (!canSetDigit(cell, digit)) {
+            return false;
+        }
+        long low = low(cell);
+        long high = high(cell);
+        words[PLACED] |= low;
+        words[PLACED + 1] |= high;
+        words[PLACED + 2 * digit] |= low;
+        words[PLACED + 2 * digit + 1] |= high;
+        for (int i = FREE + 2; i < WORDS; i += 2) {
+            words[i] &= ~low;
+            words[i + 1] &= ~high;
+        }
+        words[FREE + 2 * digit] &= ~PEERS_LOW[cell];
+        words[FREE + 2 * digit + 1] &= ~PEERS_HIGH[cell];
+        noDigits++;
+        return true;
+    }
+
+    /**
+     * Gives the number of digits set in the table.
+     * @return number of digits set (0-81)
+     */
+    public int getNumberOfDigits() {
+        return noDigits;
+    }
+
+    /**
+     * Returns whether all the cells are filled.
+     * @return true if the table is full
+     */
+    public boolean isFull() {
+        return noDigits == CELLS;
+    }
+
+    /**
+     * Sets naked singles (cells with a single candidate) and hidden singles (digits with
+     * a single place in a row, column or block) as long as there are any.
+     * @return false if an empty cell has no candidates or a digit has no place in a unit
+     */
+    public boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // cells with at least one and at least two candidates, bit sliced
+            long oneLow = 0;
+            long oneHigh = 0;
+            long twoLow = 0;
+            long twoHigh = 0;
+            for (int i = FREE + 2; i < WORDS; i += 2) {
+                twoLow |= oneLow & words[i];
+                twoHigh |= oneHigh & words[i + 1];
+                oneLow |= words[i];
+                oneHigh |= words[i + 1];
+            }
+            long emptyLow = ~words[PLACED];
+            long emptyHigh = ~words[PLACED + 1] & HIGH_MASK;
+            if ((emptyLow & ~oneLow) != 0 || (emptyHigh & ~oneHigh) != 0) {
+                return false;
+            }
+            long singleLow = oneLow & ~twoLow;
+            long singleHigh = oneHigh & ~twoHigh;
+            while (singleLow != 0) {
+                int cell = Long.numberOfTrailingZeros(singleLow);
+                singleLow &= singleLow - 1;
+                changed |= setSingle(cell);
+            }
+            while (singleHigh != 0) {
+                int cell = LOW_CELLS + Long.numberOfTrailingZeros(singleHigh);
+                singleHigh &= singleHigh - 1;
+                changed |= setSingle(cell);
+            }
+            for (int digit = 1; digit <= SIZE; digit++) {
+                int placed = PLACED + 2 * digit;
+                int free = FREE + 2 * digit;
+                for (int unit = 0; unit < 3 * SIZE; unit++) {
+                    if ((words[placed] & UNIT_LOW[unit]) != 0 || (words[placed + 1] & UNIT_HIGH[unit]) != 0) {
+                        continue;
+                    }
+                    long low = words[free] & UNIT_LOW[unit];
+                    long high = words[free + 1] & UNIT_HIGH[unit];
+                    if (low == 0 && high == 0) {
+                        return false;
+                    }
+                    if (Long.bitCount(low) + Long.bitCount(high) == 1) {
+                        int cell = low != 0 ? Long.numberOfTrailingZeros(low) : LOW_CELLS + Long.numberOfTrailingZeros(high);
+                        setDigit(cell, digit);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the empty cell to branch on: the first one for {@link SudokuHeuristic#FIRST},
+     * one with the least candidates for {@link SudokuHeuristic#MRV}.
+     * @param heuristic the cell selection heuristic
+     * @return the number of the cell, or -1 if the table is full
+     */
+    public int findBranchCell(final SudokuHeuristic heuristic) {
+        long emptyLow = ~words[PLACED];
+        long emptyHigh = ~words[PLACED + 1] & HIGH_MASK;
+        int first = emptyLow != 0 ? Long.numberOfTrailingZeros(emptyLow)
+            : emptyHigh != 0 ? LOW_CELLS + Long.numberOfTrailingZeros(emptyHigh) : -1;
+        if (first < 0 || heuristic == SudokuHeuristic.FIRST) {
+            return first;
+        }
+        int result = first;
+        int noPossibleDigits = Integer.MAX_VALUE;
+        for (int cell = first; cell < CELLS; cell++) {
+            if (!isSet(PLACED, cell)) {
+                int tempNoDigits = Integer.bitCount(getCandidateMask(cell));
+                if (tempNoDigits < noPossibleDigits) {
+                    result = cell;
+                    noPossibleDigits = tempNoDigits;
+                    if (tempNoDigits < 3) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toState().toString();
+    }
+
+    /**
+     * Sets the only candidate of a cell, if the cell still has one.
+     */
+    private boolean setSingle(final int cell) {
+        int mask = getCandidateMask(cell);
+        return mask != 0 && setDigit(cell, Integer.numberOfTrailingZeros(mask));
+    }
+
+    private boolean isSet(final int plane, final int cell) {
+        return cell < LOW_CELLS ? (words[plane] >>> cell & 1) != 0 : (words[plane + 1] >>> (cell - LOW_CELLS) & 1) != 0;
+    }
+
+    private static long low(final int cell) {
+        return cell < LOW_CELLS ? 1L << cell : 0;
+    }
+
+    private static long high(final int cell) {
+        return cell < LOW_CELLS ? 0 : 1L << (cell - LOW_CELLS);
+    }
+
+    private static void addCell(final int cell, final int unit, final long[] unitLow, final long[] unitHigh) {
+        unitLow[unit] |= low(cell);
+        unitHigh[unit] |= high(cell);
+    }
+}
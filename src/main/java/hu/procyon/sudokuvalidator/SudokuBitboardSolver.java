@@ -0,0 +1,186 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Back-tracking algorithm with naked and hidden singles propagation on {@link SudokuBitboard}s.
+ * <p>
+ * Like {@link SudokuBacktracker}, every step works on a copy of the table, but the copies are
+ * preallocated bitboards, one for each level of the search path, so a step is an array copy of
+ * a few words and nothing is allocated during the search apart from the returned solution.
+ * An instance can be reused for any number of puzzles. It is not thread-safe.
+ * <p>
+ * Bitboards represent 9×9 tables only, puzzles of other sizes are solved by a
+ * {@link SudokuBacktracker} with singles propagation and the same heuristic.
+ */
+public class SudokuBitboardSolver implements SudokuSolver {
+
+    private static final int CELLS = 81;
+
+    private final SudokuHeuristic heuristic;
+    private final SudokuSolverStats stats = new SudokuSolverStats();
+    private SudokuState solution;
+    private SudokuSolver fallback;
+
+    /** Table on each level of the search path, the first one is the propagated puzzle. */
+    private final SudokuBitboard[] boards = new SudokuBitboard[CELLS + 1];
+    /** Cell of the step on each level of the search path. */
+    private final int[] stackCell = new int[CELLS];
+    /** Digits (as bit mask) not tried yet on each level of the search path. */
+    private final int[] stackCandidates = new int[CELLS];
+
+    /**
+     * Creates a solver branching on the most constrained cell.
+     */
+    public SudokuBitboardSolver() {
+        this(SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates a solver branching on the cell selected by the given heuristic.
+     * @param heuristic the cell selection heuristic
+     */
+    public SudokuBitboardSolver(final SudokuHeuristic heuristic) {
+        this.heuristic = heuristic;
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new SudokuBitboard();
+        }
+    }
+
+    /**
+     * Finds a solution for the given {@code SudokuState} if there is one or
+     * returns null if there isn't.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @return final state or null if there is no solution
+     */
+    @Override
+    public SudokuState findSolution(final SudokuState initial) {
+        return search(initial, 1) > 0 ? solution : null;
+    }
+
+    /**
+     * Counts the solutions of the given {@code SudokuState}, but stops the search
+     * as soon as {@code limit} solutions are found.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @param limit the maximum number of solutions to be found, at least 1
+     * @return the number of solutions, but at most {@code limit}
+     */
+    @Override
+    public int countSolutions(final SudokuState initial, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+        }
+        return search(initial, limit);
+    }
+
+    @Override
+    public SudokuState getFirstSolution() {
+        return solution;
+    }
+
+    @Override
+    public SudokuSolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Searches the state space until {@code limit} solutions are found or the
+     * space is exhausted. The first solution found is stored in {@link #solution}.
+     * @return the number of solutions found
+     */
+    private int search(final SudokuState initial, final int limit) {
+        stats.reset();
+        solution = null;
+        if (initial.getBlockSize() != SudokuState.DEFAULT_BLOCK_SIZE) {
+            return searchFallback(initial, limit);
+        }
+        boards[0].load(initial);
+        if (!propagate(boards[0], boards[0].getNumberOfDigits())) {
+            return 0;
+        }
+        stats.node();
+        int noSolutions = 0;
+        int depth = 0;
+        while (true) {
+            SudokuBitboard board = boards[depth];
+            int cell = board.findBranchCell(heuristic);
+            if (cell < 0) {
+                if (solution == null) {
+                    solution = board.toState();
+                }
+                if (++noSolutions >= limit) {
+                    return noSolutions;
+                }
+            }
+            else {
+                stackCell[depth] = cell;
+                stackCandidates[depth] = board.getCandidateMask(cell);
+                depth++;
+                if (stats.isDetailed()) {
+                    stats.depth(depth);
+                    stats.branch(Integer.bitCount(stackCandidates[depth - 1]));
+                }
+            }
+            depth = nextStep(depth);
+            if (depth == 0 || stats.isAborted()) {
+                return noSolutions;
+            }
+        }
+    }
+
+    /**
+     * Makes the next step on the search path: sets the next candidate of the top level on
+     * a copy of its table, or backtracks as long as a level has no more candidates.
+     * @param depth the current depth of the search path
+     * @return the new depth, or 0 if the search space is exhausted
+     */
+    private int nextStep(int depth) {
+        while (depth > 0) {
+            int top = depth - 1;
+            int remaining = stackCandidates[top];
+            if (remaining == 0) {
+                depth--;
+                stats.backtrack();
+                continue;
+            }
+            int bit = remaining & -remaining;
+            stackCandidates[top] = remaining ^ bit;
+            SudokuBitboard board = boards[depth];
+            board.copyFrom(boards[top]);
+            board.setDigit(stackCell[top], Integer.numberOfTrailingZeros(bit));
+            stats.node();
+            if (propagate(board, board.getNumberOfDigits())) {
+                return depth;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Solves a puzzle that is not 9×9 with the fallback engine, taking over its statistics.
+     */
+    private int searchFallback(final SudokuState initial, final int limit) {
+        if (fallback == null) {
+            fallback = new SudokuBacktracker(new SudokuSinglesPropagator(), heuristic);
+        }
+        fallback.getStats().setDetailed(stats.isDetailed());
+        fallback.getStats().copyBudget(stats);
+        int noSolutions;
+        if (limit == 1) {
+            solution = fallback.findSolution(initial);
+            noSolutions = solution != null ? 1 : 0;
+        }
+        else {
+            noSolutions = fallback.countSolutions(initial, limit);
+            solution = fallback.getFirstSolution();
+        }
+        stats.add(fallback.getStats());
+        return noSolutions;
+    }
+
+    private boolean propagate(final SudokuBitboard board, final int noDigits) {
+        boolean result = board.propagate();
+        stats.forced(board.getNumberOfDigits() - noDigits);
+        return result;
+    }
+}
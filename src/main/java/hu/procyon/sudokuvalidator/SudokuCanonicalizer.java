@@ -0,0 +1,393 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the canonical form of a {@code SudokuState}: the lexicographically minimal
+ * table among those equivalent under the symmetries of Sudoku, that is, relabeling the digits,
+ * permuting the bands and the rows within the bands, permuting the stacks and the columns
+ * within the stacks, and transposition. Equivalent puzzles have the same canonical form, and
+ * the same number of solutions.
+ * <p>
+ * In the order the given cells come before the empty ones, so the canonical form starts with
+ * the most constrained rows. The form is built row by row, keeping only the partial transformations
+ * that give the minimal rows so far. The columns not distinguished by the rows chosen so far
+ * (empty in all of them) are kept as interchangeable groups instead of enumerating their orders,
+ * and the rows after the last given cell are empty without a search.
+ * <p>
+ * A row full of distinct digits ranks the same in every arrangement, so dense tables keep many partial
+ * transformations after the first rows, and symmetric tables keep many of them all along. Their number is capped,
+ * and once a fixed number of arrangements has been ranked for a row the remaining ones are dropped, which bounds
+ * the work for a table. The caps are above what the first row of any table needs, so only tables with
+ * many symmetries can reach them; the result is still an equivalent table then, but equivalent inputs
+ * may get different forms.
+ */
+public class SudokuCanonicalizer {
+
+    private static final int N = 3;
+    private static final int SIZE = N * N;
+    private static final int EMPTY_RANK = SIZE + 1;
+    /** The number of partial transformations kept, above the 2 × 9 × 6⁴ ties of a full first row. */
+    private static final int MAX_CANDIDATES = 1 << 15;
+    /**
+     * The number of arrangements ranked for a row, after which the remaining candidates are dropped.
+     * It is above the arrangements of the first row of a table and its transpose (2 × 9 rows × 6⁴ orders),
+     * so the first row is always ranked fully.
+     */
+    private static final int MAX_ARRANGEMENTS = 1 << 16;
+
+    /**
+     * A partial transformation: the rows chosen so far, the digit labels and the order of the stacks
+     * and the columns. Stacks and columns are ordered in cells: the elements of a cell are interchangeable.
+     */
+    private static final class Candidate {
+        final int[][] table;
+        final int usedRows;
+        final int band;
+        final int[] labels;
+        final int nextLabel;
+        /** Stack of each stack slot. */
+        final int[] stacks;
+        /** Bit i is set if stack slot i starts a cell. */
+        final int stackCells;
+        /** Columns of each stack (by stack) in order. */
+        final int[][] columns;
+        /** Bit i of element s is set if column i of stack s starts a cell. */
+        final int[] columnCells;
+
+        Candidate(final int[][] table, final int usedRows, final int band, final int[] labels, final int nextLabel,
+                  final int[] stacks, final int stackCells, final int[][] columns, final int[] columnCells) {
+            this.table = table;
+            this.usedRows = usedRows;
+            this.band = band;
+            this.labels = labels;
+            this.nextLabel = nextLabel;
+            this.stacks = stacks;
+            this.stackCells = stackCells;
+            this.columns = columns;
+            this.columnCells = columnCells;
+        }
+
+        static Candidate initial(final int[][] table) {
+            int[][] columns = new int[N][N];
+            int[] columnCells = new int[N];
+            int[] stacks = new int[N];
+            for (int stack = 0; stack < N; stack++) {
+                stacks[stack] = stack;
+                for (int i = 0; i < N; i++) {
+                    columns[stack][i] = stack * N + i;
+                }
+                columnCells[stack] = 1;
+            }
+            return new Candidate(table, 0, -1, new int[SIZE + 1], 1, stacks, 1, columns, columnCells);
+        }
+
+        boolean isEmpty(final int row, final int stack) {
+            for (int column : columns[stack]) {
+                if (table[row][column] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * An arrangement of a row for a candidate: the order of the stacks and of the columns in each stack.
+     */
+    private static final class Arrangement {
+        final Candidate candidate;
+        final int row;
+        final int[] stacks;
+        final int[][] columns;
+
+        Arrangement(final Candidate candidate, final int row, final int[] stacks, final int[][] columns) {
+            this.candidate = candidate;
+            this.row = row;
+            this.stacks = stacks;
+            this.columns = columns;
+        }
+    }
+
+    /** The minimal row of the current position and the arrangements giving it. */
+    private final int[] best = new int[SIZE];
+    private final int[] ranks = new int[SIZE];
+    private final int[] rankLabels = new int[SIZE + 1];
+    private boolean found;
+    private int noArrangements;
+    private final List<Arrangement> ties = new ArrayList<>();
+
+    /**
+     * Gives the canonical form of a state in the one-line format: 81 characters row by row,
+     * with the relabeled digits 1-9 and {@literal '.'} for the empty cells.
+     * An instance is not thread-safe.
+     *
+     * @param state a 9×9 Sudoku state
+     * @return the canonical form
+     * @throws IllegalArgumentException if the state is not a 9×9 table
+     */
+    public String canonicalize(final SudokuState state) {
+        if (state.getSize() != SIZE) {
+            throw new IllegalArgumentException("Canonical forms are supported for 9×9 tables only: " + state.getSize());
+        }
+        int[][] table = new int[SIZE][SIZE];
+        int[][] transposed = new int[SIZE][SIZE];
+        int noGivens = 0;
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                table[row][column] = state.getDigit(row, column);
+                transposed[column][row] = table[row][column];
+                if (table[row][column] != 0) {
+                    noGivens++;
+                }
+            }
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(Candidate.initial(table));
+        candidates.add(Candidate.initial(transposed));
+        StringBuilder sb = new StringBuilder(SIZE * SIZE);
+        for (int position = 0; position < SIZE; position++) {
+            found = false;
+            ties.clear();
+            noArrangements = 0;
+            // once the budget of the row is used up, the rest of the candidates are dropped
+            for (int i = 0; i < candidates.size() && (i == 0 || noArrangements < MAX_ARRANGEMENTS); i++) {
+                Candidate candidate = candidates.get(i);
+                for (int row = 0; row < SIZE; row++) {
+                    if (isAllowed(candidate, position, row)) {
+                        arrange(candidate, row);
+                    }
+                }
+            }
+            for (int rank : best) {
+                if (rank != EMPTY_RANK) {
+                    noGivens--;
+                }
+                sb.append(rank == EMPTY_RANK ? '.' : (char) ('0' + rank));
+            }
+            if (noGivens == 0) {
+                // the rest of the table is empty whatever the transformation is
+                break;
+            }
+            candidates = new ArrayList<>(ties.size());
+            for (Arrangement arrangement : ties) {
+                candidates.add(refine(arrangement));
+            }
+        }
+        ties.clear();
+        while (sb.length() < SIZE * SIZE) {
+            sb.append('.');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tells whether a row can be the next one: a row of a new band at the start of a band,
+     * an unused row of the current band otherwise.
+     */
+    private static boolean isAllowed(final Candidate candidate, final int position, final int row) {
+        if ((candidate.usedRows & 1 << row) != 0) {
+            return false;
+        }
+        if (position % N == 0) {
+            return (candidate.usedRows >> (row / N * N) & ((1 << N) - 1)) == 0;
+        }
+        return row / N == candidate.band;
+    }
+
+    /**
+     * Tries every arrangement of the row that can be minimal: the stacks of a cell and the
+     * columns of a cell with digits without label are permuted, the columns with labeled digits
+     * are sorted by label and the empty stacks and columns are kept at the end of their cells.
+     */
+    private void arrange(final Candidate candidate, final int row) {
+        List<int[]> stackOrders = new ArrayList<>();
+        permuteCells(candidate.stacks.clone(), candidate.stackCells, 0, stack -> candidate.isEmpty(row, stack) ? 2 : 1,
+            stackOrders);
+        List<List<int[]>> columnOrders = new ArrayList<>(N);
+        for (int stack = 0; stack < N; stack++) {
+            List<int[]> orders = new ArrayList<>();
+            int[] columns = sortLabeled(candidate, row, candidate.columns[stack], candidate.columnCells[stack]);
+            permuteCells(columns, candidate.columnCells[stack], 0, column -> {
+                int digit = candidate.table[row][column];
+                return digit == 0 ? 2 : candidate.labels[digit] != 0 ? 0 : 1;
+            }, orders);
+            columnOrders.add(orders);
+        }
+        for (int[] stacks : stackOrders) {
+            for (int[] first : columnOrders.get(stacks[0])) {
+                for (int[] second : columnOrders.get(stacks[1])) {
+                    for (int[] third : columnOrders.get(stacks[2])) {
+                        int[][] columns = new int[N][];
+                        columns[stacks[0]] = first;
+                        columns[stacks[1]] = second;
+                        columns[stacks[2]] = third;
+                        rank(candidate, row, stacks, columns);
+                        noArrangements++;
+                        int order = found ? compare(ranks, best) : -1;
+                        if (order < 0) {
+                            System.arraycopy(ranks, 0, best, 0, SIZE);
+                            found = true;
+                            ties.clear();
+                        }
+                        if (order <= 0 && ties.size() < MAX_CANDIDATES) {
+                            ties.add(new Arrangement(candidate, row, stacks, columns));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Classifies the elements of a cell for {@link #permuteCells}.
+     */
+    private interface Kind {
+        /**
+         * @return 0 for elements kept in their order, 1 for elements permuted, 2 for elements kept at the end
+         */
+        int of(int element);
+    }
+
+    /**
+     * Adds every order of the elements where, within each cell, the elements of kind 0 keep their
+     * order, those of kind 1 follow them in every order, and those of kind 2 are at the end in their order.
+     */
+    private static void permuteCells(final int[] elements, final int cells, final int start,
+                                     final Kind kind, final List<int[]> result) {
+        if (start == elements.length) {
+            result.add(elements.clone());
+            return;
+        }
+        int end = start + 1;
+        while (end < elements.length && (cells & 1 << end) == 0) {
+            end++;
+        }
+        int[] fixed = new int[end - start];
+        int[] permuted = new int[end - start];
+        int[] last = new int[end - start];
+        int noFixed = 0;
+        int noPermuted = 0;
+        int noLast = 0;
+        for (int i = start; i < end; i++) {
+            switch (kind.of(elements[i])) {
+                case 0:
+                    fixed[noFixed++] = elements[i];
+                    break;
+                case 1:
+                    permuted[noPermuted++] = elements[i];
+                    break;
+                default:
+                    last[noLast++] = elements[i];
+            }
+        }
+        System.arraycopy(fixed, 0, elements, start, noFixed);
+        System.arraycopy(last, 0, elements, end - noLast, noLast);
+        permute(elements, start + noFixed, permuted, 0, noPermuted, 0, cells, end, kind, result);
+    }
+
+    private static void permute(final int[] elements, final int offset, final int[] permuted, final int length,
+                                final int noPermuted, final int used, final int cells, final int end,
+                                final Kind kind, final List<int[]> result) {
+        if (length == noPermuted) {
+            permuteCells(elements, cells, end, kind, result);
+            return;
+        }
+        for (int i = 0; i < noPermuted; i++) {
+            if ((used & 1 << i) == 0) {
+                elements[offset + length] = permuted[i];
+                permute(elements, offset, permuted, length + 1, noPermuted, used | 1 << i, cells, end, kind, result);
+            }
+        }
+    }
+
+    /**
+     * Sorts the columns with labeled digits by their labels within each cell, before the other columns of the cell.
+     */
+    private static int[] sortLabeled(final Candidate candidate, final int row, final int[] columns, final int cells) {
+        int[] sorted = columns.clone();
+        for (int i = 1; i < sorted.length; i++) {
+            for (int j = i; j > 0 && (cells & 1 << j) == 0 && key(candidate, row, sorted[j]) < key(candidate, row, sorted[j - 1]); j--) {
+                int temp = sorted[j];
+                sorted[j] = sorted[j - 1];
+                sorted[j - 1] = temp;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Gives the label of the digit in a column, or a larger value for unlabeled digits and empty cells, which keep their order.
+     */
+    private static int key(final Candidate candidate, final int row, final int column) {
+        int digit = candidate.table[row][column];
+        return digit != 0 && candidate.labels[digit] != 0 ? candidate.labels[digit] : EMPTY_RANK;
+    }
+
+    /**
+     * Writes the ranks of the row in the given arrangement to {@link #ranks}, labeling new digits in the order of appearance.
+     */
+    private void rank(final Candidate candidate, final int row, final int[] stacks, final int[][] columns) {
+        System.arraycopy(candidate.labels, 0, rankLabels, 0, SIZE + 1);
+        int label = candidate.nextLabel;
+        int position = 0;
+        for (int stack : stacks) {
+            for (int column : columns[stack]) {
+                int digit = candidate.table[row][column];
+                if (digit == 0) {
+                    ranks[position++] = EMPTY_RANK;
+                }
+                else {
+                    if (rankLabels[digit] == 0) {
+                        rankLabels[digit] = label++;
+                    }
+                    ranks[position++] = rankLabels[digit];
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the candidate of a minimal arrangement: the stacks and columns with digits in the row
+     * become distinguished, the empty ones of a cell stay interchangeable.
+     */
+    private static Candidate refine(final Arrangement arrangement) {
+        Candidate candidate = arrangement.candidate;
+        int row = arrangement.row;
+        int[] stacks = arrangement.stacks;
+        int stackCells = 0;
+        for (int slot = 0; slot < N; slot++) {
+            if ((candidate.stackCells & 1 << slot) != 0 || !candidate.isEmpty(row, stacks[slot])
+                || !candidate.isEmpty(row, stacks[slot - 1])) {
+                stackCells |= 1 << slot;
+            }
+        }
+        int[] columnCells = new int[N];
+        int[] labels = candidate.labels.clone();
+        int label = candidate.nextLabel;
+        for (int stack : stacks) {
+            int[] columns = arrangement.columns[stack];
+            for (int i = 0; i < N; i++) {
+                int digit = candidate.table[row][columns[i]];
+                if ((candidate.columnCells[stack] & 1 << i) != 0 || digit != 0 || candidate.table[row][columns[i - 1]] != 0) {
+                    columnCells[stack] |= 1 << i;
+                }
+                if (digit != 0 && labels[digit] == 0) {
+                    labels[digit] = label++;
+                }
+            }
+        }
+        return new Candidate(candidate.table, candidate.usedRows | 1 << row, row / N, labels, label,
+            stacks, stackCells, arrangement.columns, columnCells);
+    }
+
+    private static int compare(final int[] ranks, final int[] other) {
+        for (int i = 0; i < SIZE; i++) {
+            if (ranks[i] != other[i]) {
+                return ranks[i] < other[i] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,30 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Consistency checks of a puzzle that {@link SudokuAnalyzer} makes before it is solved.
+ */
+public enum SudokuCheck {
+    /** An empty cell has no possible digit, so the puzzle has no solution. */
+    NO_CANDIDATE_CELL(true),
+    /** A digit is neither set nor possible in any cell of a row, column or block, so the puzzle has no solution. */
+    NO_PLACE_FOR_DIGIT(true),
+    /**
+     * Fewer digits are given than any 9×9 puzzle with a unique solution has, so the puzzle has
+     * no solution or more than one.
+     */
+    TOO_FEW_GIVENS(false);
+
+    private final boolean contradiction;
+
+    SudokuCheck(final boolean contradiction) {
+        this.contradiction = contradiction;
+    }
+
+    /**
+     * Tells whether a puzzle failing this check has no solution.
+     * @return true if the puzzle has no solution, false if it has no unique solution
+     */
+    public boolean isContradiction() {
+        return contradiction;
+    }
+}
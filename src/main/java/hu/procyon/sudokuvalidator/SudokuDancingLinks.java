@@ -0,0 +1,350 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Solves Sudoku puzzles as an exact cover problem with Knuth's Dancing Links (Algorithm X).
+ * <p>
+ * The exact cover matrix has a column for each constraint (every cell has a digit, and every
+ * row, column and block has every digit, that is 4 × 81 columns for a 9×9 table) and a matrix row
+ * for each possible placement of a digit (9 × 81 rows), which covers 4 constraints. The matrix is
+ * built into preallocated primitive arrays when the instance is created, and rebuilt only when a
+ * puzzle of another size comes. The digits of the puzzle are covered before the search and everything
+ * is uncovered after it, so the instance can be reused for any number of puzzles. It is not thread-safe.
+ */
+public class SudokuDancingLinks implements SudokuSolver {
+
+    private static final int ROOT = 0;
+
+    private int n;
+    private int tableSize;
+    private int cells;
+    private int columns;
+    private int firstNode;
+
+    // links of the headers (1..columns) and the nodes; the root is node 0
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    /** Column header of each node, a header is its own column. */
+    private int[] column;
+    /** Matrix row of each node, in the form (row * tableSize + column) * tableSize + digit - 1. */
+    private int[] matrixRow;
+    /** Number of nodes in each column. */
+    private int[] size;
+
+    /** The chosen node on each level of the search. */
+    private int[] choice;
+    /** Matrix rows of the digits of the current puzzle. */
+    private int[] givens;
+    private int[] solutionRows;
+
+    private final SudokuHeuristic heuristic;
+    private final SudokuSolverStats stats = new SudokuSolverStats();
+    private SudokuState solution;
+
+    /**
+     * Creates a solver choosing the constraint with the least possible rows, and builds its exact cover matrix.
+     */
+    public SudokuDancingLinks() {
+        this(SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates a solver choosing the constraint selected by the given heuristic, and builds its exact cover matrix.
+     * @param heuristic the column selection heuristic
+     */
+    public SudokuDancingLinks(final SudokuHeuristic heuristic) {
+        this.heuristic = heuristic;
+        build(SudokuState.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Builds the exact cover matrix for tables of the given block size.
+     */
+    private void build(final int blockSize) {
+        n = blockSize;
+        tableSize = n * n;
+        cells = tableSize * tableSize;
+        columns = 4 * cells;
+        firstNode = columns + 1;
+        int rows = tableSize * cells;
+        int nodes = firstNode + 4 * rows;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        matrixRow = new int[nodes];
+        size = new int[columns + 1];
+        choice = new int[cells];
+        givens = new int[cells];
+        solutionRows = new int[cells];
+        for (int header = ROOT; header <= columns; header++) {
+            left[header] = header == ROOT ? columns : header - 1;
+            right[header] = header == columns ? ROOT : header + 1;
+            up[header] = header;
+            down[header] = header;
+            column[header] = header;
+        }
+        int node = firstNode;
+        for (int row = 0; row < rows; row++) {
+            int cell = row / tableSize;
+            int digit = row % tableSize;
+            int r = cell / tableSize;
+            int c = cell % tableSize;
+            int b = r / n * n + c / n;
+            int[] headers = {
+                1 + cell,
+                1 + cells + r * tableSize + digit,
+                1 + 2 * cells + c * tableSize + digit,
+                1 + 3 * cells + b * tableSize + digit
+            };
+            int first = node;
+            for (int i = 0; i < headers.length; i++, node++) {
+                int header = headers[i];
+                column[node] = header;
+                matrixRow[node] = row;
+                up[node] = up[header];
+                down[node] = header;
+                down[up[header]] = node;
+                up[header] = node;
+                size[header]++;
+                left[node] = i == 0 ? first + headers.length - 1 : node - 1;
+                right[node] = i == headers.length - 1 ? first : node + 1;
+            }
+        }
+    }
+
+    /**
+     * Finds a solution for the given {@code SudokuState} if there is one or
+     * returns null if there isn't.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @return final state or null if there is no solution
+     */
+    @Override
+    public SudokuState findSolution(final SudokuState initial) {
+        return search(initial, 1) > 0 ? solution : null;
+    }
+
+    /**
+     * Counts the solutions of the given {@code SudokuState}, but stops the search
+     * as soon as {@code limit} solutions are found.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @param limit the maximum number of solutions to be found, at least 1
+     * @return the number of solutions, but at most {@code limit}
+     */
+    @Override
+    public int countSolutions(final SudokuState initial, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+        }
+        return search(initial, limit);
+    }
+
+    @Override
+    public SudokuState getFirstSolution() {
+        return solution;
+    }
+
+    @Override
+    public SudokuSolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Runs Algorithm X iteratively until {@code limit} solutions are found or the
+     * search space is exhausted, then restores the matrix.
+     * The first solution found is stored in {@link #solution}.
+     * @return the number of solutions found
+     */
+    private int search(final SudokuState initial, final int limit) {
+        stats.reset();
+        solution = null;
+        if (initial.getBlockSize() != n) {
+            build(initial.getBlockSize());
+        }
+        int noGivens = coverGivens(initial);
+        int noSolutions = 0;
+        int level = 0;
+        boolean forward = true;
+        while (true) {
+            if (stats.isAborted()) {
+                // after a step forward the current level has no choice yet
+                if (forward) {
+                    level--;
+                }
+                break;
+            }
+            if (forward) {
+                if (right[ROOT] == ROOT) {
+                    if (solution == null) {
+                        solution = toState(noGivens, level);
+                    }
+                    level--;
+                    if (++noSolutions >= limit) {
+                        break;
+                    }
+                }
+                else {
+                    int header = chooseColumn();
+                    if (stats.isDetailed()) {
+                        stats.depth(level + 1);
+                        stats.branch(size[header]);
+                    }
+                    cover(header);
+                    choice[level] = header;
+                }
+            }
+            if (level < 0) {
+                break;
+            }
+            // replace the choice on the current level with the next row of its column
+            int node = choice[level];
+            if (node >= firstNode) {
+                uncoverRow(node);
+            }
+            node = down[node];
+            if (node == column[node]) {
+                uncover(node);
+                level--;
+                forward = false;
+                stats.backtrack();
+            }
+            else {
+                stats.node();
+                choice[level] = node;
+                coverRow(node);
+                level++;
+                forward = true;
+            }
+        }
+        for (; level >= 0; level--) {
+            uncoverRow(choice[level]);
+            uncover(column[choice[level]]);
+        }
+        uncoverGivens(noGivens);
+        return noSolutions;
+    }
+
+    /**
+     * Chooses the column with the least rows, or the first column with the {@link SudokuHeuristic#FIRST} heuristic.
+     */
+    private int chooseColumn() {
+        int result = right[ROOT];
+        if (heuristic == SudokuHeuristic.FIRST) {
+            return result;
+        }
+        for (int header = right[result]; header != ROOT && size[result] > 1; header = right[header]) {
+            if (size[header] < size[result]) {
+                result = header;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the column from the header list and its rows from the other columns.
+     */
+    private void cover(final int header) {
+        // the arrays are reallocated for other sizes, local copies let them be kept in registers
+        final int[] left = this.left;
+        final int[] right = this.right;
+        final int[] up = this.up;
+        final int[] down = this.down;
+        final int[] column = this.column;
+        final int[] size = this.size;
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Reverts {@link #cover(int)}.
+     */
+    private void uncover(final int header) {
+        final int[] left = this.left;
+        final int[] right = this.right;
+        final int[] up = this.up;
+        final int[] down = this.down;
+        final int[] column = this.column;
+        final int[] size = this.size;
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+    /**
+     * Covers the columns of the node's row, except for the node's own column.
+     */
+    private void coverRow(final int node) {
+        for (int j = right[node]; j != node; j = right[j]) {
+            cover(column[j]);
+        }
+    }
+
+    /**
+     * Reverts {@link #coverRow(int)}.
+     */
+    private void uncoverRow(final int node) {
+        for (int j = left[node]; j != node; j = left[j]) {
+            uncover(column[j]);
+        }
+    }
+
+    /**
+     * Covers every column of the rows belonging to the digits of the puzzle.
+     * @return the number of digits
+     */
+    private int coverGivens(final SudokuState state) {
+        int noGivens = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int digit = state.getDigit(cell / tableSize, cell % tableSize);
+            if (digit != 0) {
+                int node = firstNode + 4 * (cell * tableSize + digit - 1);
+                givens[noGivens++] = node;
+                cover(column[node]);
+                coverRow(node);
+            }
+        }
+        return noGivens;
+    }
+
+    /**
+     * Reverts {@link #coverGivens(SudokuState)}.
+     */
+    private void uncoverGivens(final int noGivens) {
+        for (int i = noGivens - 1; i >= 0; i--) {
+            uncoverRow(givens[i]);
+            uncover(column[givens[i]]);
+        }
+    }
+
+    private SudokuState toState(final int noGivens, final int level) {
+        for (int i = 0; i < noGivens; i++) {
+            solutionRows[i] = matrixRow[givens[i]];
+        }
+        for (int i = 0; i < level; i++) {
+            solutionRows[noGivens + i] = matrixRow[choice[i]];
+        }
+        SudokuState state = new SudokuState(n);
+        for (int i = 0; i < noGivens + level; i++) {
+            int cell = solutionRows[i] / tableSize;
+            state.setDigit(cell / tableSize, cell % tableSize, solutionRows[i] % tableSize + 1);
+        }
+        return state;
+    }
+}
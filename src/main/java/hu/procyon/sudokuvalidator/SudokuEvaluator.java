@@ -9,31 +9,66 @@ import java.util.NoSuchElementException;
  */
 public class SudokuEvaluator {
 
+    /** The coordinates of every cell (row by row) for every block size, so that none is created in the search. */
+    private static final SudokuCoordinate[][] COORDINATES = new SudokuCoordinate[SudokuState.MAX_BLOCK_SIZE + 1][];
+
+    static {
+        for (int n = SudokuState.MIN_BLOCK_SIZE; n <= SudokuState.MAX_BLOCK_SIZE; n++) {
+            int size = n * n;
+            COORDINATES[n] = new SudokuCoordinate[size * size];
+            for (int cell = 0; cell < size * size; cell++) {
+                COORDINATES[n][cell] = new SudokuCoordinate(cell / size, cell % size);
+            }
+        }
+    }
+
+    private final SudokuHeuristic heuristic;
+
+    /**
+     * Creates an evaluator branching on the most constrained cell.
+     */
+    public SudokuEvaluator() {
+        this(SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates an evaluator branching on the cell selected by the given heuristic.
+     * @param heuristic the cell selection heuristic
+     */
+    public SudokuEvaluator(final SudokuHeuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
     /**
      * Finds a coordinate in the Sudoku state which is empty and the number of
      * possible digits to fill is minimum, or null if there is no empty cell in the state.
+     * Of the cells with the same number of possible digits, the first one row by row is selected.
+     * The cell is looked up in the index of the state (see {@link SudokuState#getMostConstrainedCell()}).
      *
      * @param state the Sudoku state to be scanned
      * @return coordinates of the selected empty cell in the Sudoku state, or null in case there is no such cell
      */
     public SudokuCoordinate findLeastAmbigousEmptyCoordinate(SudokuState state) {
-        SudokuCoordinate result = null;
-        int noPossibleDigits = Integer.MAX_VALUE;
+        int cell = state.getMostConstrainedCell();
+        return cell >= 0 ? COORDINATES[state.getBlockSize()][cell] : null;
+    }
+
+    /**
+     * Finds the first empty coordinate in the Sudoku state from top to bottom, left to right,
+     * or null if there is no empty cell in the state.
+     *
+     * @param state the Sudoku state to be scanned
+     * @return coordinates of the first empty cell in the Sudoku state, or null in case there is no such cell
+     */
+    public SudokuCoordinate findFirstEmptyCoordinate(SudokuState state) {
         for (int row = 0; row < state.getSize(); row++) {
             for (int column = 0; column < state.getSize(); column++) {
                 if (!state.isDigitSet(row, column)) {
-                    int tempNoDigits = state.getNumberOfPossibleDigits(row, column);
-                    if (tempNoDigits < noPossibleDigits) {
-                        result = new SudokuCoordinate(row, column);
-                        noPossibleDigits = tempNoDigits;
-                    }
-                    if (tempNoDigits < 1) {
-                        return result;
-                    }
+                    return COORDINATES[state.getBlockSize()][row * state.getSize() + column];
                 }
             }
         }
-        return result;
+        return null;
     }
 
     /**
@@ -44,54 +79,58 @@ public class SudokuEvaluator {
      * @return
      */
     private int noSteps(SudokuState state, SudokuCoordinate coordinate) {
-        return state.getNumberOfPossibleDigits(coordinate.row, coordinate.column);
+        return Long.bitCount(state.getCandidateMask(coordinate.row, coordinate.column));
     }
 
     /**
      * Gives an iterator for possible steps in a given state, or null if there are no more steps.
+     * The steps fill the cell selected by the heuristic of the evaluator.
      *
      * @param state
      * @return iterator for the possible steps
      */
     public Iterator<SudokuStep> getStepIterator(SudokuState state) {
-        SudokuCoordinate coordinate = findLeastAmbigousEmptyCoordinate(state);
+        SudokuCoordinate coordinate = heuristic == SudokuHeuristic.FIRST
+            ? findFirstEmptyCoordinate(state)
+            : findLeastAmbigousEmptyCoordinate(state);
         return coordinate != null && 1 <= noSteps(state, coordinate)
             ? new SudokuStepIterator(state, coordinate)
             : null;
     }
 
+    /**
+     * Gives the number of steps not returned yet by a step iterator of this class.
+     *
+     * @param stepIterator an iterator returned by {@link #getStepIterator(SudokuState)}
+     * @return the number of remaining steps
+     */
+    static int getNumberOfRemainingSteps(Iterator<SudokuStep> stepIterator) {
+        return Long.bitCount(((SudokuStepIterator) stepIterator).remaining);
+    }
+
     /**
      * Iterator class for Sudoku steps given a Sudoku states and coordinate.
      */
     private class SudokuStepIterator implements Iterator<SudokuStep> {
-        private final SudokuState state;
         private final SudokuCoordinate coord;
-        private int nextDigit;
+        private long remaining;
 
         private SudokuStepIterator(SudokuState state, SudokuCoordinate coordinate) {
-            this.state = state;
             this.coord = coordinate;
-            this.nextDigit = 0;
-            findNext();
-        }
-
-        private void findNext() {
-            do {
-                nextDigit++;
-            } while (nextDigit <= state.getSize() && state.isDigitExcluded(coord.row, coord.column, nextDigit));
+            this.remaining = state.getCandidateMask(coordinate.row, coordinate.column);
         }
 
         @Override
         public boolean hasNext() {
-            return nextDigit <= state.getSize();
+            return remaining != 0;
         }
 
         @Override
         public SudokuStep next() {
             if (hasNext()) {
-                int digit = nextDigit;
-                findNext();
-                return new SudokuStep(coord, digit, hasNext());
+                long bit = Long.lowestOneBit(remaining);
+                remaining ^= bit;
+                return new SudokuStep(coord, Long.numberOfTrailingZeros(bit), hasNext());
             }
             throw new NoSuchElementException();
         }
@@ -0,0 +1,21 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Data class for a failed check of {@link SudokuAnalyzer}, with a message telling where it failed.
+ */
+public class SudokuFinding {
+
+    public final SudokuCheck check;
+    /** Human readable description of the failure, e.g. {@code Digit 7 has no place in row 3}. */
+    public final String message;
+
+    public SudokuFinding(final SudokuCheck check, final String message) {
+        this.check = check;
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return check.name() + ": " + message;
+    }
+}
@@ -0,0 +1,46 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Cell selection heuristics of the solver engines, that is, where the search branches next.
+ */
+public enum SudokuHeuristic {
+    /**
+     * Minimum remaining values: the empty cell with the least possible digits
+     * (for Dancing Links, the constraint with the least possible rows).
+     */
+    MRV("mrv"),
+    /**
+     * The first empty cell from top to bottom, left to right
+     * (for Dancing Links, the first constraint not covered yet).
+     */
+    FIRST("first");
+
+    private final String name;
+
+    SudokuHeuristic(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gives the name of the heuristic used on the command line.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gives the heuristic with the given command line name.
+     * @param name the name of the heuristic
+     * @return the heuristic
+     * @throws IllegalArgumentException if there is no heuristic with the given name
+     */
+    public static SudokuHeuristic forName(final String name) {
+        for (SudokuHeuristic heuristic : values()) {
+            if (heuristic.name.equals(name)) {
+                return heuristic;
+            }
+        }
+        throw new IllegalArgumentException("Unknown heuristic: " + name);
+    }
+}
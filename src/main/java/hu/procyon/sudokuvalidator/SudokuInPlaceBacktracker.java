@@ -0,0 +1,257 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Back-tracking algorithm for {@code SudokuState} that works on a single table in place.
+ * <p>
+ * Unlike {@link SudokuBacktracker}, which copies the state for every step, this class
+ * loads the puzzle into preallocated primitive arrays, sets and clears digits in place and
+ * keeps the search path on a fixed depth stack. Apart from the returned solution nothing is
+ * allocated during the search, and an instance can be reused for any number of puzzles.
+ * The arrays are allocated for the size of the puzzle, and reallocated only when a puzzle
+ * of another size comes. It is not thread-safe.
+ */
+public class SudokuInPlaceBacktracker implements SudokuSolver {
+
+    private int n;
+    private int size;
+    private int cells;
+    private long allDigits;
+    private int[] rowOf;
+    private int[] columnOf;
+    private int[] blockOf;
+
+    private int[] table;
+    private long[] rowDigits;
+    private long[] columnDigits;
+    private long[] blockDigits;
+
+    private final SudokuHeuristic heuristic;
+    private final SudokuSolverStats stats = new SudokuSolverStats();
+    private SudokuState solution;
+
+    /** Cell of the step on each level of the search path. */
+    private int[] stackCell;
+    /** Digits (as bit mask) not tried yet on each level of the search path. */
+    private long[] stackCandidates;
+
+    /**
+     * Creates a back-tracker branching on the most constrained cell.
+     */
+    public SudokuInPlaceBacktracker() {
+        this(SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates a back-tracker branching on the cell selected by the given heuristic.
+     * @param heuristic the cell selection heuristic
+     */
+    public SudokuInPlaceBacktracker(final SudokuHeuristic heuristic) {
+        this.heuristic = heuristic;
+        allocate(SudokuState.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Allocates the arrays for tables of the given block size.
+     */
+    private void allocate(final int blockSize) {
+        n = blockSize;
+        size = n * n;
+        cells = size * size;
+        allDigits = ((1L << size) - 1) << 1;
+        rowOf = new int[cells];
+        columnOf = new int[cells];
+        blockOf = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            rowOf[cell] = cell / size;
+            columnOf[cell] = cell % size;
+            blockOf[cell] = rowOf[cell] / n * n + columnOf[cell] / n;
+        }
+        table = new int[cells];
+        rowDigits = new long[size];
+        columnDigits = new long[size];
+        blockDigits = new long[size];
+        stackCell = new int[cells];
+        stackCandidates = new long[cells];
+    }
+
+    /**
+     * Finds a solution for the given {@code SudokuState} if there is one or
+     * returns null if there isn't.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @return final state or null if there is no solution
+     */
+    @Override
+    public SudokuState findSolution(final SudokuState initial) {
+        return search(initial, 1) > 0 ? solution : null;
+    }
+
+    /**
+     * Counts the solutions of the given {@code SudokuState}, but stops the search
+     * as soon as {@code limit} solutions are found.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @param limit the maximum number of solutions to be found, at least 1
+     * @return the number of solutions, but at most {@code limit}
+     */
+    @Override
+    public int countSolutions(final SudokuState initial, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+        }
+        return search(initial, limit);
+    }
+
+    /**
+     * Searches the state space until {@code limit} solutions are found or the
+     * space is exhausted. The first solution found is stored in {@link #solution}.
+     * @return the number of solutions found
+     */
+    private int search(final SudokuState initial, final int limit) {
+        load(initial);
+        stats.reset();
+        solution = null;
+        int noSolutions = 0;
+        int depth = 0;
+        while (true) {
+            int cell = heuristic == SudokuHeuristic.FIRST ? findFirstEmptyCell() : findLeastAmbigousEmptyCell();
+            if (cell < 0) {
+                if (solution == null) {
+                    solution = toState();
+                }
+                if (++noSolutions >= limit) {
+                    return noSolutions;
+                }
+            }
+            else {
+                stackCell[depth] = cell;
+                stackCandidates[depth] = candidates(cell);
+                depth++;
+                if (stats.isDetailed()) {
+                    stats.depth(depth);
+                    stats.branch(Long.bitCount(stackCandidates[depth - 1]));
+                }
+            }
+            depth = nextStep(depth);
+            if (depth == 0 || stats.isAborted()) {
+                return noSolutions;
+            }
+        }
+    }
+
+    /**
+     * Makes the next step on the search path: replaces the digit on the top level by the
+     * next candidate, or backtracks as long as a level has no more candidates.
+     * @param depth the current depth of the search path
+     * @return the new depth, or 0 if the search space is exhausted
+     */
+    private int nextStep(int depth) {
+        while (depth > 0) {
+            int top = depth - 1;
+            int cell = stackCell[top];
+            if (table[cell] != 0) {
+                clearDigit(cell);
+            }
+            long remaining = stackCandidates[top];
+            if (remaining != 0) {
+                long bit = remaining & -remaining;
+                stackCandidates[top] = remaining ^ bit;
+                setDigit(cell, Long.numberOfTrailingZeros(bit));
+                stats.node();
+                return depth;
+            }
+            depth--;
+            stats.backtrack();
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the empty cell with the least possible digits, or returns -1 if the table is full.
+     */
+    private int findLeastAmbigousEmptyCell() {
+        int result = -1;
+        int noPossibleDigits = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cells; cell++) {
+            if (table[cell] == 0) {
+                int tempNoDigits = Long.bitCount(candidates(cell));
+                if (tempNoDigits < noPossibleDigits) {
+                    result = cell;
+                    noPossibleDigits = tempNoDigits;
+                    if (tempNoDigits < 2) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first empty cell, or returns -1 if the table is full.
+     */
+    private int findFirstEmptyCell() {
+        for (int cell = 0; cell < cells; cell++) {
+            if (table[cell] == 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public SudokuState getFirstSolution() {
+        return solution;
+    }
+
+    @Override
+    public SudokuSolverStats getStats() {
+        return stats;
+    }
+
+    private long candidates(final int cell) {
+        return ~(rowDigits[rowOf[cell]] | columnDigits[columnOf[cell]] | blockDigits[blockOf[cell]]) & allDigits;
+    }
+
+    private void setDigit(final int cell, final int digit) {
+        long mask = 1L << digit;
+        table[cell] = digit;
+        rowDigits[rowOf[cell]] |= mask;
+        columnDigits[columnOf[cell]] |= mask;
+        blockDigits[blockOf[cell]] |= mask;
+    }
+
+    private void clearDigit(final int cell) {
+        long mask = ~(1L << table[cell]);
+        table[cell] = 0;
+        rowDigits[rowOf[cell]] &= mask;
+        columnDigits[columnOf[cell]] &= mask;
+        blockDigits[blockOf[cell]] &= mask;
+    }
+
+    private void load(final SudokuState state) {
+        if (state.getBlockSize() != n) {
+            allocate(state.getBlockSize());
+        }
+        for (int i = 0; i < size; i++) {
+            rowDigits[i] = 0;
+            columnDigits[i] = 0;
+            blockDigits[i] = 0;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            table[cell] = 0;
+            int digit = state.getDigit(rowOf[cell], columnOf[cell]);
+            if (digit != 0) {
+                setDigit(cell, digit);
+            }
+        }
+    }
+
+    private SudokuState toState() {
+        SudokuState state = new SudokuState(n);
+        for (int cell = 0; cell < cells; cell++) {
+            state.setDigit(rowOf[cell], columnOf[cell], table[cell]);
+        }
+        return state;
+    }
+}
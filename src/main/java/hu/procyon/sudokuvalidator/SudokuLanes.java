@@ -0,0 +1,243 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * The candidate masks of {@value #LANES} 9×9 puzzles side by side, one puzzle in each lane, which are
+ * propagated in lockstep: every step of naked and hidden singles propagation is made on the same cell
+ * of every lane at once. The masks are stored cell by cell, so the masks of a cell in every lane are
+ * adjacent, and a step is the same operation on each of them.
+ * <p>
+ * This class makes the steps lane by lane. On Java 17 and later, with the {@code jdk.incubator.vector}
+ * module added to the JVM, {@link #create()} gives a subclass making them with SIMD instructions
+ * of the Java Vector API. Both give the same masks.
+ * <p>
+ * A lane is propagated until none of its masks changes, then it is {@link #DEAD} if a cell has no
+ * candidate or a digit has no place in a unit, {@link #SOLVED} if every cell has a single candidate,
+ * or {@link #OPEN} if the puzzle needs branching. Propagation only removes candidates that cannot be
+ * in any solution, so a solved lane has exactly one solution and an open lane has the solutions of its puzzle.
+ */
+class SudokuLanes {
+
+    /** Number of puzzles propagated together. */
+    static final int LANES = 16;
+    static final int DEAD = 0;
+    static final int SOLVED = 1;
+    static final int OPEN = 2;
+
+    static final int N = 3;
+    static final int SIZE = N * N;
+    static final int CELLS = SIZE * SIZE;
+    static final int UNITS = 3 * SIZE;
+    /** Mask of every digit, bit {@code d} for digit {@code d} as in {@link SudokuState#getCandidateMask(int, int)}. */
+    static final short ALL = (short) (((1 << SIZE) - 1) << 1);
+    /** Cells of each row, column and block (in this order). */
+    static final int[][] UNIT_CELLS = new int[UNITS][SIZE];
+    /** Row, column and block of each cell. */
+    static final int[][] CELL_UNITS = new int[CELLS][3];
+
+    private static final String VECTOR_CLASS = "hu.procyon.sudokuvalidator.SudokuVectorLanes";
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / SIZE;
+            int column = cell % SIZE;
+            int block = row / N * N + column / N;
+            CELL_UNITS[cell][0] = row;
+            CELL_UNITS[cell][1] = SIZE + column;
+            CELL_UNITS[cell][2] = 2 * SIZE + block;
+            UNIT_CELLS[row][column] = cell;
+            UNIT_CELLS[SIZE + column][row] = cell;
+            UNIT_CELLS[2 * SIZE + block][row % N * N + column % N] = cell;
+        }
+    }
+
+    /** Masks of cell {@code c} in lane {@code l} at {@code c * LANES + l}. */
+    final short[] masks = new short[CELLS * LANES];
+    /** Singles of each unit found once and more than once, in the same layout. */
+    final short[] singlesOnce = new short[UNITS * LANES];
+    final short[] singlesTwice = new short[UNITS * LANES];
+    /** Number of the lanes in use, from lane 0. */
+    int noLanes = LANES;
+
+    /**
+     * Creates propagation lanes with the Vector API if it is available, otherwise lanes
+     * propagated by scalar operations.
+     * @return new lanes
+     */
+    static SudokuLanes create() {
+        try {
+            return (SudokuLanes) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // before Java 17, or the jdk.incubator.vector module is not added
+            return new SudokuLanes();
+        }
+    }
+
+    /**
+     * Tells whether the steps are made with the Vector API.
+     * @return true if the lanes are vectorized
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Loads a 9×9 puzzle into a lane.
+     * @param lane the lane
+     * @param state the puzzle, which is not modified
+     */
+    void load(final int lane, final SudokuState state) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / SIZE;
+            int column = cell % SIZE;
+            masks[cell * LANES + lane] = (short) (state.isDigitSet(row, column)
+                ? 1 << state.getDigit(row, column) : state.getCandidateMask(row, column));
+        }
+    }
+
+    /**
+     * Empties a lane, so that it is not propagated.
+     * @param lane the lane
+     */
+    void clear(final int lane) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            masks[cell * LANES + lane] = 0;
+        }
+    }
+
+    /**
+     * Sets the number of the lanes in use, from lane 0, and empties the rest of them.
+     * The lanes not in use are not propagated lane by lane.
+     * @param noLanes the number of lanes in use
+     */
+    void setNumberOfLanes(final int noLanes) {
+        this.noLanes = noLanes;
+        for (int lane = noLanes; lane < LANES; lane++) {
+            clear(lane);
+        }
+    }
+
+    /**
+     * Propagates every lane until none of them changes.
+     * @return the number of rounds
+     */
+    int propagate() {
+        int rounds = 1;
+        while (round()) {
+            rounds++;
+        }
+        return rounds;
+    }
+
+    /**
+     * Makes a round of propagation on every lane: removes the digits of the naked singles from their peers,
+     * then sets the hidden singles of every unit.
+     * @return true if a mask changed
+     */
+    boolean round() {
+        countSingles();
+        int changed = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = CELL_UNITS[cell][0] * LANES;
+            int column = CELL_UNITS[cell][1] * LANES;
+            int block = CELL_UNITS[cell][2] * LANES;
+            int base = cell * LANES;
+            for (int l = 0; l < noLanes; l++) {
+                int mask = masks[base + l];
+                int own = (mask & mask - 1) == 0 ? mask : 0;
+                int peers = singlesOnce[row + l] | singlesOnce[column + l] | singlesOnce[block + l];
+                int twice = singlesTwice[row + l] | singlesTwice[column + l] | singlesTwice[block + l];
+                int reduced = mask & ~(peers & ~own | twice);
+                changed |= mask ^ reduced;
+                masks[base + l] = (short) reduced;
+            }
+        }
+        for (int unit = 0; unit < UNITS; unit++) {
+            int[] cells = UNIT_CELLS[unit];
+            for (int l = 0; l < noLanes; l++) {
+                int once = 0;
+                int twice = 0;
+                for (int cell : cells) {
+                    int mask = masks[cell * LANES + l];
+                    twice |= once & mask;
+                    once |= mask;
+                }
+                int hidden = once & ~twice;
+                for (int cell : cells) {
+                    int mask = masks[cell * LANES + l];
+                    int single = mask & hidden;
+                    if (single != 0) {
+                        changed |= mask ^ single;
+                        masks[cell * LANES + l] = (short) single;
+                    }
+                }
+            }
+        }
+        return changed != 0;
+    }
+
+    /**
+     * Collects the digits of the naked singles of every unit in {@link #singlesOnce},
+     * and those of more than one naked single of a unit in {@link #singlesTwice}.
+     */
+    private void countSingles() {
+        for (int unit = 0; unit < UNITS; unit++) {
+            int base = unit * LANES;
+            for (int l = 0; l < noLanes; l++) {
+                int once = 0;
+                int twice = 0;
+                for (int cell : UNIT_CELLS[unit]) {
+                    int mask = masks[cell * LANES + l];
+                    int single = (mask & mask - 1) == 0 ? mask : 0;
+                    twice |= once & single;
+                    once |= single;
+                }
+                singlesOnce[base + l] = (short) once;
+                singlesTwice[base + l] = (short) twice;
+            }
+        }
+    }
+
+    /**
+     * Gives the outcome of the propagation of a lane.
+     * @param lane the lane
+     * @return {@link #DEAD}, {@link #SOLVED} or {@link #OPEN}
+     */
+    int getStatus(final int lane) {
+        int status = SOLVED;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int mask = masks[cell * LANES + lane];
+            if (mask == 0) {
+                return DEAD;
+            }
+            if ((mask & mask - 1) != 0) {
+                status = OPEN;
+            }
+        }
+        for (int[] cells : UNIT_CELLS) {
+            int covered = 0;
+            for (int cell : cells) {
+                covered |= masks[cell * LANES + lane];
+            }
+            if (covered != ALL) {
+                return DEAD;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Gives the digits of the single candidates of a lane as a state.
+     * @param lane the lane
+     * @return the state, with the cells of more than one candidate empty
+     */
+    SudokuState toState(final int lane) {
+        SudokuState state = new SudokuState();
+        for (int cell = 0; cell < CELLS; cell++) {
+            int mask = masks[cell * LANES + lane];
+            if ((mask & mask - 1) == 0) {
+                state.setDigit(cell / SIZE, cell % SIZE, Integer.numberOfTrailingZeros(mask));
+            }
+        }
+        return state;
+    }
+}
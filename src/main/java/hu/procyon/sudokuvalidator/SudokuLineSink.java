@@ -0,0 +1,22 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.PrintStream;
+
+/**
+ * Writes the results as lines to a stream, in the order they are received.
+ *
+ * @see SudokuResult#toString()
+ */
+public class SudokuLineSink implements SudokuResultSink {
+
+    private final PrintStream out;
+
+    public SudokuLineSink(final PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void accept(final SudokuResult result) {
+        out.append(result.toString()).append('\n');
+    }
+}
@@ -0,0 +1,170 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Solves 9×9 puzzles in groups of {@value SudokuLanes#LANES}: the puzzles of a group are propagated
+ * in lockstep in {@link SudokuLanes}, with SIMD instructions where the Java Vector API is available.
+ * Most easy puzzles are solved or found contradictory by propagation alone; only the puzzles that
+ * need branching are searched one by one from their propagated state by a {@link SudokuBitboardSolver}.
+ * <p>
+ * The verdicts are the same as those of the other engines. Puzzles of other sizes are solved by
+ * a {@link SudokuBacktracker} with singles propagation and the same heuristic.
+ * A puzzle solved by propagation counts as a single search node. The budget of the statistics applies
+ * to the search of each puzzle. An instance can be reused for any number of puzzles. It is not thread-safe.
+ */
+public class SudokuLockstepSolver implements SudokuBatchSolver {
+
+    private final SudokuLanes lanes = SudokuLanes.create();
+    private final SudokuSolver fallback;
+    private final SudokuSolver largeFallback;
+    private final SudokuSolverStats stats = new SudokuSolverStats();
+    /** Statistics of the propagation of a group, without a budget. */
+    private final SudokuSolverStats laneStats = new SudokuSolverStats();
+
+    /** Index of the puzzle in each lane of the group being filled. */
+    private final int[] lanePuzzles = new int[SudokuLanes.LANES];
+    private int noLanes = 0;
+
+    /** The number of solutions of each puzzle of the current search. */
+    private int[] counts;
+    /** Whether the search of each puzzle of the current search was aborted. */
+    private boolean[] aborted;
+    /** A solution of each puzzle of the current search, if they are wanted. */
+    private SudokuState[] solutions;
+
+    /**
+     * Creates a solver branching on the most constrained cell.
+     */
+    public SudokuLockstepSolver() {
+        this(SudokuHeuristic.MRV);
+    }
+
+    /**
+     * Creates a solver branching on the cell selected by the given heuristic.
+     * @param heuristic the cell selection heuristic
+     */
+    public SudokuLockstepSolver(final SudokuHeuristic heuristic) {
+        this.fallback = new SudokuBitboardSolver(heuristic);
+        this.largeFallback = new SudokuBacktracker(new SudokuSinglesPropagator(), heuristic);
+    }
+
+    /**
+     * Tells whether the puzzles are propagated with the Java Vector API.
+     * @return true if the propagation is vectorized, false if it is made lane by lane
+     */
+    public boolean isVectorized() {
+        return lanes.isVectorized();
+    }
+
+    @Override
+    public SudokuState findSolution(final SudokuState initial) {
+        return search(new SudokuState[] {initial}, 1, true) > 0 ? solutions[0] : null;
+    }
+
+    @Override
+    public int countSolutions(final SudokuState initial, final int limit) {
+        checkLimit(limit);
+        return search(new SudokuState[] {initial}, limit, false);
+    }
+
+    @Override
+    public int[] countSolutions(final SudokuState[] puzzles, final int limit) {
+        checkLimit(limit);
+        search(puzzles, limit, false);
+        int[] result = counts.clone();
+        for (int i = 0; i < result.length; i++) {
+            if (aborted[i] && result[i] < limit) {
+                result[i] = -1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public SudokuSolverStats getStats() {
+        return stats;
+    }
+
+    private static void checkLimit(final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Solution limit must be positive: " + limit);
+        }
+    }
+
+    /**
+     * Solves every puzzle, filling {@link #counts}, {@link #aborted} and, if solutions are wanted, {@link #solutions}.
+     * @return the number of solutions of the first puzzle
+     */
+    private int search(final SudokuState[] puzzles, final int limit, final boolean solutionsWanted) {
+        stats.reset();
+        counts = new int[puzzles.length];
+        aborted = new boolean[puzzles.length];
+        solutions = solutionsWanted ? new SudokuState[puzzles.length] : null;
+        noLanes = 0;
+        for (int i = 0; i < puzzles.length; i++) {
+            if (puzzles[i].getBlockSize() != SudokuState.DEFAULT_BLOCK_SIZE) {
+                searchFallback(largeFallback, i, puzzles[i], limit);
+                continue;
+            }
+            lanes.load(noLanes, puzzles[i]);
+            lanePuzzles[noLanes++] = i;
+            if (noLanes == SudokuLanes.LANES) {
+                propagate(puzzles, limit);
+            }
+        }
+        if (noLanes > 0) {
+            propagate(puzzles, limit);
+        }
+        return counts.length > 0 ? counts[0] : 0;
+    }
+
+    /**
+     * Propagates the puzzles loaded into the lanes, then searches those that need branching.
+     */
+    private void propagate(final SudokuState[] puzzles, final int limit) {
+        lanes.setNumberOfLanes(noLanes);
+        lanes.propagate();
+        laneStats.setDetailed(stats.isDetailed());
+        laneStats.reset();
+        for (int lane = 0; lane < noLanes; lane++) {
+            int i = lanePuzzles[lane];
+            int status = lanes.getStatus(lane);
+            if (status != SudokuLanes.OPEN) {
+                // decided without branching, like the root node of a search
+                laneStats.node();
+            }
+            if (status == SudokuLanes.DEAD) {
+                continue;
+            }
+            SudokuState propagated = lanes.toState(lane);
+            laneStats.forced(propagated.getNumberOfDigits() - puzzles[i].getNumberOfDigits());
+            if (status == SudokuLanes.SOLVED) {
+                counts[i] = 1;
+                if (solutions != null) {
+                    solutions[i] = propagated;
+                }
+            }
+            else {
+                searchFallback(fallback, i, propagated, limit);
+            }
+        }
+        stats.add(laneStats);
+        noLanes = 0;
+    }
+
+    /**
+     * Searches a puzzle with a fallback engine, taking over its statistics.
+     */
+    private void searchFallback(final SudokuSolver engine, final int i, final SudokuState puzzle, final int limit) {
+        engine.getStats().setDetailed(stats.isDetailed());
+        engine.getStats().copyBudget(stats);
+        if (solutions != null) {
+            solutions[i] = engine.findSolution(puzzle);
+            counts[i] = solutions[i] != null ? 1 : 0;
+        }
+        else {
+            counts[i] = engine.countSolutions(puzzle, limit);
+        }
+        aborted[i] = engine.getStats().isAborted();
+        stats.add(engine.getStats());
+    }
+}
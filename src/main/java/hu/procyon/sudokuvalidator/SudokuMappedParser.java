@@ -0,0 +1,328 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class can be used to parse many {@code SudokuState}s from a file, one at a time,
+ * decoding the records directly from the bytes of the memory-mapped file.
+ * <p>
+ * The records are the same as those of {@link SudokuStreamParser}, and errors are reported
+ * with the same line and position, but no line strings, split arrays or boxed digits are created.
+ * Like the stream parser, the parser reads puzzles of a single block size.
+ * The file is mapped in windows of at most 64 MB, so its size is not limited;
+ * a line must fit in a window. The file is read as ASCII text, with LF or CRLF line ends.
+ */
+public class SudokuMappedParser implements SudokuRecordParser {
+
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+    private final int blockSize;
+    private final int size;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    /** Position of the window in the file. */
+    private long windowStart = 0;
+    /** Position of the next line in the window. */
+    private int position = 0;
+
+    /** The last line read, as positions in the window. */
+    private int lineStart;
+    private int lineEnd;
+    private int lineNo = 0;
+    /** Elements of the row being parsed that have a value, and their values; grown for rows with too many elements. */
+    private boolean[] rowGiven;
+    private int[] rowDigits;
+    private int recordLineNo = -1;
+    private int noRecords = 0;
+
+    /**
+     * Opens the given file for parsing.
+     * @param file the file of Sudoku records
+     * @throws FileNotFoundException if the file is not a regular file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public SudokuMappedParser(final File file) throws IOException {
+        this(file, SudokuState.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens the given file of puzzles with the given block size for parsing.
+     * @param file the file of Sudoku records
+     * @param blockSize the block size of the puzzles, e.g. 4 for 16×16 puzzles
+     * @throws IllegalArgumentException if the block size is not supported by {@link SudokuState}
+     * @throws FileNotFoundException if the file is not a regular file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public SudokuMappedParser(final File file, final int blockSize) throws IOException {
+        this(file, blockSize, DEFAULT_WINDOW_SIZE);
+    }
+
+    SudokuMappedParser(final File file, final int blockSize, final int windowSize) throws IOException {
+        this.blockSize = SudokuState.checkBlockSize(blockSize);
+        this.size = blockSize * blockSize;
+        this.rowGiven = new boolean[size];
+        this.rowDigits = new int[size];
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        try {
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public SudokuState next() throws SudokuParseException, SudokuStateException {
+        try {
+            do {
+                if (!readLine()) {
+                    return null;
+                }
+            } while (isBlankLine());
+        } catch (IOException e) {
+            throw new SudokuParseException("Error while reading Sudoku file", e);
+        }
+        recordLineNo = lineNo - 1;
+        noRecords++;
+        SudokuState state = new SudokuState(blockSize);
+        if (isOneLineRecord()) {
+            parseOneLine(state);
+            return state;
+        }
+        // the rest of the record is read even after an error
+        Exception error = parseCommaLine(state, 0);
+        try {
+            for (int row = 1; row < size && readLine(); row++) {
+                Exception rowError = parseCommaLine(state, row);
+                error = error != null ? error : rowError;
+            }
+        } catch (IOException e) {
+            throw new SudokuParseException("Error while reading Sudoku file", e);
+        }
+        if (error instanceof SudokuParseException) {
+            throw (SudokuParseException) error;
+        }
+        if (error instanceof SudokuStateException) {
+            throw (SudokuStateException) error;
+        }
+        return state;
+    }
+
+    @Override
+    public int getRecordLineNumber() {
+        return recordLineNo;
+    }
+
+    @Override
+    public int getNumberOfRecords() {
+        return noRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Finds the next line, mapping the next window if the line is not entirely in the current one.
+     * @return false at the end of the file
+     */
+    private boolean readLine() throws IOException, SudokuParseException {
+        if (windowStart + position >= fileSize) {
+            return false;
+        }
+        int end = indexOfLineEnd(position);
+        if (end < 0 && windowStart + window.limit() < fileSize) {
+            map(windowStart + position);
+            end = indexOfLineEnd(0);
+            if (end < 0 && windowStart + window.limit() < fileSize) {
+                throw new SudokuParseException("Line is longer than " + windowSize + " bytes", lineNo, 0);
+            }
+        }
+        lineStart = position;
+        lineEnd = end >= 0 ? end : window.limit();
+        position = end >= 0 ? end + 1 : lineEnd;
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        lineNo++;
+        return true;
+    }
+
+    private int indexOfLineEnd(final int from) {
+        int limit = window.limit();
+        for (int i = from; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        position = 0;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+
+    private boolean isBlankLine() {
+        return trimmedStart() == lineEnd;
+    }
+
+    /**
+     * Tells whether the line is a record in the one-line format (as many characters as cells, without commas).
+     */
+    private boolean isOneLineRecord() {
+        if (size > SudokuStateParser.MAX_CHARACTER_DIGIT) {
+            return false;
+        }
+        int start = trimmedStart();
+        int end = trimmedEnd(start);
+        if (end - start != size * size) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (window.get(i) == ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parseOneLine(final SudokuState state) throws SudokuParseException, SudokuStateException {
+        int start = trimmedStart();
+        for (int i = 0; i < size * size; i++) {
+            int c = window.get(start + i) & 0xFF;
+            int digit = SudokuStateParser.characterDigit(c);
+            if (digit < 0 || digit > size) {
+                throw new SudokuParseException("Invalid Sudoku digit: " + (char) c, recordLineNo, i);
+            }
+            if (digit > 0) {
+                SudokuStateParser.setDigit(state, i / size, i % size, digit);
+            }
+        }
+    }
+
+    /**
+     * Parses a line of the comma separated format into the given row, like
+     * {@link SudokuStateParser#parseLine(int, String)}: every element of the line
+     * is parsed before the digits are set.
+     * @return the first error in the line, or null
+     */
+    private Exception parseCommaLine(final SudokuState state, final int row) {
+        int noElements = 0;
+        int elementStart = lineStart;
+        try {
+            for (int column = 0; elementStart <= lineEnd; column++) {
+                int elementEnd = elementStart;
+                while (elementEnd < lineEnd && window.get(elementEnd) != ',') {
+                    elementEnd++;
+                }
+                int start = elementStart;
+                int end = elementEnd;
+                while (start < end && isSpace(start)) {
+                    start++;
+                }
+                while (end > start && isSpace(end - 1)) {
+                    end--;
+                }
+                if (column == rowGiven.length) {
+                    // the elements beyond the row are given to the state like by the other parsers
+                    rowGiven = Arrays.copyOf(rowGiven, 2 * column);
+                    rowDigits = Arrays.copyOf(rowDigits, 2 * column);
+                }
+                rowGiven[column] = start < end;
+                rowDigits[column] = start < end ? parseNumber(start, end, column) : 0;
+                noElements++;
+                elementStart = elementEnd + 1;
+            }
+            for (int column = 0; column < noElements; column++) {
+                if (rowGiven[column]) {
+                    SudokuStateParser.setDigit(state, row, column, rowDigits[column]);
+                }
+            }
+        } catch (SudokuParseException | SudokuStateException e) {
+            return e;
+        }
+        return null;
+    }
+
+    /**
+     * Parses a decimal number with an optional sign, as {@link Integer#parseInt(String)} does.
+     */
+    private int parseNumber(final int start, final int end, final int column) throws SudokuParseException {
+        int i = start;
+        boolean negative = false;
+        if (window.get(i) == '-' || window.get(i) == '+') {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        long value = 0;
+        if (i == end) {
+            throw invalidDigit(start, end, column);
+        }
+        for (; i < end; i++) {
+            byte c = window.get(i);
+            if (c < '0' || c > '9') {
+                throw invalidDigit(start, end, column);
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw invalidDigit(start, end, column);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalidDigit(start, end, column);
+        }
+        return (int) value;
+    }
+
+    private SudokuParseException invalidDigit(final int start, final int end, final int column) {
+        byte[] element = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            element[i - start] = window.get(i);
+        }
+        return new SudokuParseException("Invalid Sudoku digit: " + new String(element, StandardCharsets.ISO_8859_1),
+            lineNo - 1, column);
+    }
+
+    private int trimmedStart() {
+        int start = lineStart;
+        while (start < lineEnd && isSpace(start)) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(final int start) {
+        int end = lineEnd;
+        while (end > start && isSpace(end - 1)) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Tells whether the byte is white space for {@link String#trim()}.
+     */
+    private boolean isSpace(final int index) {
+        return (window.get(index) & 0xFF) <= ' ';
+    }
+}
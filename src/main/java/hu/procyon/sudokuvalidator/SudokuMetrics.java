@@ -0,0 +1,21 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Data class for the measurements of validating one puzzle in batch mode,
+ * collected only if {@link SudokuBatchValidator#setMetricsCollected(boolean)} is set.
+ */
+public class SudokuMetrics {
+
+    /** Wall time of parsing the puzzle in nanoseconds. */
+    public final long parseNanos;
+    /** Wall time of solving the puzzle in nanoseconds. */
+    public final long solveNanos;
+    /** Detailed statistics of the search, a copy owned by this object. */
+    public final SudokuSolverStats stats;
+
+    public SudokuMetrics(final long parseNanos, final long solveNanos, final SudokuSolverStats stats) {
+        this.parseNanos = parseNanos;
+        this.solveNanos = solveNanos;
+        this.stats = stats;
+    }
+}
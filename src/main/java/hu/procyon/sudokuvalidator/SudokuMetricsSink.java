@@ -0,0 +1,112 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.PrintStream;
+
+/**
+ * Writes the metrics of every result as a JSON line to a stream, then gives the result
+ * to the next sink. The metrics are also aggregated, and {@link #writeTotal()} writes
+ * them as a last JSON line.
+ * <p>
+ * A puzzle line looks like
+ * <pre>
+ * {"type":"puzzle","source":"a.txt","verdict":"VALID","code":0,"parseNanos":51200,"solveNanos":180300,
+ *  "nodes":12,"backtracks":3,"forcedMoves":58,"maxDepth":4,"branching":[0,0,9,2]}
+ * </pre>
+ * where {@code branching[k]} is the number of search nodes with {@code k} possible steps.
+ * A puzzle rejected by {@link SudokuAnalyzer} also has the failed check, e.g. {@code "check":"NO_PLACE_FOR_DIGIT"}.
+ * Puzzles that were not solved (e.g. that could not be parsed) have no measurements.
+ * The total line has the type {@code total}, and the number of puzzles and valid puzzles
+ * instead of the source and the verdict.
+ */
+public class SudokuMetricsSink implements SudokuResultSink {
+
+    private final SudokuResultSink next;
+    private final PrintStream out;
+    private final SudokuSolverStats totalStats = new SudokuSolverStats();
+    private long noPuzzles = 0;
+    private long noValidPuzzles = 0;
+    private long totalParseNanos = 0;
+    private long totalSolveNanos = 0;
+
+    /**
+     * Creates a new metrics sink.
+     * @param next the sink receiving the results after their metrics are written
+     * @param out the stream for the JSON lines
+     */
+    public SudokuMetricsSink(final SudokuResultSink next, final PrintStream out) {
+        this.next = next;
+        this.out = out;
+        totalStats.setDetailed(true);
+    }
+
+    @Override
+    public void accept(final SudokuResult result) {
+        synchronized (this) {
+            noPuzzles++;
+            if (result.verdict == SudokuVerdict.VALID) {
+                noValidPuzzles++;
+            }
+            StringBuilder sb = new StringBuilder("{\"type\":\"puzzle\",\"source\":");
+            appendString(sb, result.source);
+            sb.append(",\"verdict\":\"").append(result.verdict.name())
+                .append("\",\"code\":").append(result.verdict.getCode());
+            if (result.finding != null) {
+                sb.append(",\"check\":\"").append(result.finding.check.name()).append('"');
+            }
+            if (result.metrics != null) {
+                totalParseNanos += result.metrics.parseNanos;
+                totalSolveNanos += result.metrics.solveNanos;
+                totalStats.add(result.metrics.stats);
+                appendMetrics(sb, result.metrics.parseNanos, result.metrics.solveNanos, result.metrics.stats);
+            }
+            out.append(sb.append('}')).append('\n');
+        }
+        next.accept(result);
+    }
+
+    /**
+     * Writes the metrics aggregated over every result received so far.
+     */
+    public synchronized void writeTotal() {
+        StringBuilder sb = new StringBuilder("{\"type\":\"total\",\"puzzles\":").append(noPuzzles)
+            .append(",\"valid\":").append(noValidPuzzles);
+        appendMetrics(sb, totalParseNanos, totalSolveNanos, totalStats);
+        out.append(sb.append('}')).append('\n');
+        out.flush();
+    }
+
+    private static void appendMetrics(final StringBuilder sb, final long parseNanos, final long solveNanos,
+                                      final SudokuSolverStats stats) {
+        sb.append(",\"parseNanos\":").append(parseNanos)
+            .append(",\"solveNanos\":").append(solveNanos)
+            .append(",\"nodes\":").append(stats.getNodes())
+            .append(",\"backtracks\":").append(stats.getBacktracks())
+            .append(",\"forcedMoves\":").append(stats.getForcedMoves())
+            .append(",\"maxDepth\":").append(stats.getMaxDepth())
+            .append(",\"branching\":[");
+        for (int factor = 0; factor <= stats.getMaxBranching(); factor++) {
+            if (factor > 0) {
+                sb.append(',');
+            }
+            sb.append(stats.getBranching(factor));
+        }
+        sb.append(']');
+    }
+
+    private static void appendString(final StringBuilder sb, final String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            }
+            else if (c < ' ') {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
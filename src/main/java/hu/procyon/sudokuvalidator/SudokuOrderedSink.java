@@ -0,0 +1,105 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Forwards the results to another sink in the order of their sequence numbers,
+ * holding back the results that arrive before their predecessors.
+ * The sequence numbers must start from 0 and must not have gaps.
+ * <p>
+ * The results held back can be limited by a window: a submitter calling {@link #awaitWindow(long)}
+ * before it validates a puzzle waits while the puzzle is too far ahead of the next result to be forwarded,
+ * e.g. behind a puzzle that takes long to solve.
+ * <p>
+ * If the other sink throws an exception for a result, the result counts as forwarded, the results
+ * following it are still forwarded, and the exception is thrown to the caller afterwards.
+ * If the results are not produced any more, {@link #abort()} releases the submitters waiting for the window.
+ */
+public class SudokuOrderedSink implements SudokuResultSink {
+
+    private final SudokuResultSink next;
+    private final long window;
+    private final Map<Long, SudokuResult> pending = new HashMap<>();
+    private long nextSequence = 0;
+    private boolean aborted = false;
+
+    /**
+     * Creates a sink holding back any number of results.
+     * @param next the sink the results are forwarded to
+     */
+    public SudokuOrderedSink(final SudokuResultSink next) {
+        this(next, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a sink with a window of results.
+     * @param next the sink the results are forwarded to
+     * @param window the number of sequence numbers from the next result to be forwarded that
+     *      {@link #awaitWindow(long)} lets through, at least 1
+     */
+    public SudokuOrderedSink(final SudokuResultSink next, final long window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.next = next;
+        this.window = window;
+    }
+
+    @Override
+    public synchronized void accept(final SudokuResult result) {
+        if (result.sequence != nextSequence) {
+            pending.put(result.sequence, result);
+            return;
+        }
+        // a result the next sink fails on is passed over, so that the following ones are not held back forever
+        RuntimeException failure = null;
+        for (SudokuResult current = result; current != null; current = pending.remove(nextSequence)) {
+            try {
+                next.accept(current);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                else {
+                    failure.addSuppressed(e);
+                }
+            }
+            nextSequence++;
+        }
+        notifyAll();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits until the result with the given sequence number is within the window, so that at most
+     * the window of results are held back. It must not be called by the threads producing the results
+     * the sink waits for. It returns at once after {@link #abort()}.
+     * @param sequence the sequence number of the next result to be produced
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void awaitWindow(final long sequence) throws InterruptedException {
+        while (!aborted && sequence - nextSequence >= window) {
+            wait();
+        }
+    }
+
+    /**
+     * Stops limiting the results held back and wakes the submitters waiting for the window,
+     * e.g. when the results they wait for will never arrive.
+     */
+    public synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    /**
+     * Gives the number of results held back.
+     * @return the number of results waiting for their predecessors
+     */
+    public synchronized int getNumberOfPending() {
+        return pending.size();
+    }
+}
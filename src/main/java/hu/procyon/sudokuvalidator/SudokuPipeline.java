@@ -0,0 +1,437 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Validates multi-puzzle streams in four stages running on their own threads, so that reading
+ * the input, parsing, solving and writing the results overlap:
+ * <ul>
+ * <li>{@code read}: reads the lines of the records from the files or the standard input (one thread),</li>
+ * <li>{@code parse}: parses the records to {@link SudokuState}s (one thread),</li>
+ * <li>{@code solve}: validates the puzzles with {@link SudokuBatchValidator} (any number of threads),
+ * a batch at once if the engine is a {@link SudokuBatchSolver},</li>
+ * <li>{@code write}: gives the results to the sink of the validator, in the order of the input if required (one thread).</li>
+ * </ul>
+ * The stages are connected by bounded queues of batches of puzzles. A stage blocks when its output queue is full,
+ * so a slow stage slows down the stages before it instead of filling the memory.
+ * The time the stages are busy, idle or blocked and the depths of their input queues are
+ * measured in {@link SudokuStageStats}, which show the bottleneck of the pipeline.
+ * <p>
+ * The inputs are the same as those of {@link SudokuBatchValidator#validateStream(String, SudokuRecordParser)}:
+ * multi-puzzle text files, binary corpus files ({@link SudokuBinaryParser}, read and decoded by the {@code read} stage)
+ * and {@code -} for the standard input, with the same result lines.
+ */
+public class SudokuPipeline {
+
+    /** The name of the standard input. */
+    public static final String STDIN = "-";
+    /** The default number of puzzles in a batch. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int QUEUE_BATCHES_PER_THREAD = 4;
+    /** Marks the end of the input of a stage. */
+    private static final List<Item> END = Collections.emptyList();
+
+    private final SudokuBatchValidator validator;
+    private final int solverThreads;
+    private final boolean ordered;
+    private final int batchSize;
+    private InputStream stdin = System.in;
+
+    private final SudokuStageStats readStats;
+    private final SudokuStageStats parseStats;
+    private final SudokuStageStats solveStats;
+    private final SudokuStageStats writeStats;
+    private volatile RuntimeException failure;
+    private SudokuOrderedSink orderedWriter;
+
+    /**
+     * A puzzle on its way through the stages.
+     */
+    private static final class Item {
+        final long sequence;
+        final String source;
+        SudokuStreamParser parser;
+        int lineNo;
+        String[] lines;
+        SudokuState state;
+        long parseNanos;
+        SudokuVerdict verdict;
+        SudokuResult result;
+
+        Item(final long sequence, final String source) {
+            this.sequence = sequence;
+            this.source = source;
+        }
+    }
+
+    /**
+     * Creates a pipeline with batches of {@value #DEFAULT_BATCH_SIZE} puzzles.
+     * @param validator the validator of the puzzles, also giving the results to its sink
+     * @param solverThreads the number of threads of the {@code solve} stage
+     * @param ordered whether the results must be given to the sink in the order of the input
+     */
+    public SudokuPipeline(final SudokuBatchValidator validator, final int solverThreads, final boolean ordered) {
+        this(validator, solverThreads, ordered, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a pipeline.
+     * @param validator the validator of the puzzles, also giving the results to its sink
+     * @param solverThreads the number of threads of the {@code solve} stage
+     * @param ordered whether the results must be given to the sink in the order of the input
+     * @param batchSize the number of puzzles passed between the stages at once
+     */
+    public SudokuPipeline(final SudokuBatchValidator validator, final int solverThreads, final boolean ordered,
+                          final int batchSize) {
+        if (solverThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + solverThreads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.validator = validator;
+        this.solverThreads = solverThreads;
+        this.ordered = ordered;
+        this.batchSize = batchSize;
+        this.readStats = new SudokuStageStats("read", 1, 0);
+        this.parseStats = new SudokuStageStats("parse", 1, QUEUE_BATCHES_PER_THREAD);
+        this.solveStats = new SudokuStageStats("solve", solverThreads, solverThreads * QUEUE_BATCHES_PER_THREAD);
+        this.writeStats = new SudokuStageStats("write", 1, QUEUE_BATCHES_PER_THREAD);
+    }
+
+    /**
+     * Sets the stream read for the {@value #STDIN} input, by default {@code System.in}.
+     */
+    void setStandardInput(final InputStream stdin) {
+        this.stdin = stdin;
+    }
+
+    /**
+     * Validates every puzzle of the inputs and waits until every result is given to the sink.
+     * @param inputs the paths of the multi-puzzle files, {@value #STDIN} for the standard input
+     * @throws IllegalStateException if a stage failed
+     */
+    public void run(final List<String> inputs) {
+        BlockingQueue<List<Item>> read = new ArrayBlockingQueue<>(parseStats.getQueueCapacity());
+        BlockingQueue<List<Item>> parsed = new ArrayBlockingQueue<>(solveStats.getQueueCapacity());
+        BlockingQueue<List<Item>> solved = new ArrayBlockingQueue<>(writeStats.getQueueCapacity());
+        // twice the puzzles that can be in the stages at once, so that the read stage waits only behind a slow batch
+        long window = 2L * batchSize * (parseStats.getQueueCapacity() + solveStats.getQueueCapacity()
+            + writeStats.getQueueCapacity() + solverThreads + 3);
+        orderedWriter = ordered ? new SudokuOrderedSink(validator::emit, window) : null;
+        SudokuResultSink writer = ordered ? orderedWriter : validator::emit;
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> read(inputs, read), "sudoku-read"));
+        threads.add(new Thread(() -> runStage(parseStats, read, 1, parsed, solverThreads,
+            batch -> batch.forEach(this::parse)), "sudoku-parse"));
+        for (int i = 0; i < solverThreads; i++) {
+            threads.add(new Thread(() -> runStage(solveStats, parsed, 1, solved, 1, this::solve), "sudoku-solve-" + i));
+        }
+        threads.add(new Thread(() -> runStage(writeStats, solved, solverThreads, null, 0,
+            batch -> batch.forEach(item -> writer.accept(item.result))), "sudoku-write"));
+
+        for (SudokuStageStats stats : getStageStats()) {
+            stats.start();
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        for (SudokuStageStats stats : getStageStats()) {
+            stats.stop();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Pipeline stage failed", failure);
+        }
+    }
+
+    /**
+     * Gives the statistics of the stages, in the order of the stages.
+     * @return the statistics of the read, parse, solve and write stages
+     */
+    public List<SudokuStageStats> getStageStats() {
+        return Arrays.asList(readStats, parseStats, solveStats, writeStats);
+    }
+
+    /**
+     * Runs the {@code read} stage: reads the records of the inputs and puts them in batches to the queue.
+     * If the results are ordered, it waits while a batch is too far ahead of the results written.
+     * After a failure of any stage it stops reading.
+     */
+    private void read(final List<String> inputs, final BlockingQueue<List<Item>> out) {
+        Batcher batcher = new Batcher(out);
+        try {
+            for (String input : inputs) {
+                if (failure == null) {
+                    readInput(input, batcher);
+                }
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            batcher.flush();
+            batcher.put(END);
+        } catch (InterruptedException e) {
+            // the pipeline is stopped
+        }
+    }
+
+    private void readInput(final String input, final Batcher batcher) throws InterruptedException {
+        if (STDIN.equals(input)) {
+            readText(input, new InputStreamReader(stdin), batcher);
+            return;
+        }
+        File file = new File(input);
+        try {
+            if (SudokuBinaryParser.isBinaryFile(file)) {
+                readBinary(input, new SudokuBinaryParser(file), batcher);
+            }
+            else {
+                readText(input, new FileReader(file), batcher);
+            }
+        } catch (IOException e) {
+            // missing, not a regular file, or cannot be mapped
+            batcher.add(new Item(batcher.sequence, input), SudokuVerdict.NOT_FOUND);
+        }
+    }
+
+    private void readText(final String name, final Reader reader, final Batcher batcher) throws InterruptedException {
+        try (SudokuStreamParser parser = new SudokuStreamParser(reader, validator.getBlockSize())) {
+            while (failure == null) {
+                String[] lines;
+                try {
+                    lines = parser.nextLines();
+                } catch (SudokuParseException e) {
+                    // I/O error, the rest of the stream cannot be read
+                    batcher.add(new Item(batcher.sequence, name), SudokuVerdict.PARSE_ERROR);
+                    break;
+                }
+                if (lines == null) {
+                    break;
+                }
+                Item item = new Item(batcher.sequence, name + ":" + parser.getNumberOfRecords());
+                item.parser = parser;
+                item.lineNo = parser.getRecordLineNumber();
+                item.lines = lines;
+                batcher.add(item, null);
+            }
+        } catch (IOException e) {
+            // closing failed, every puzzle has already been read
+        }
+    }
+
+    private void readBinary(final String name, final SudokuBinaryParser parser, final Batcher batcher)
+            throws IOException, InterruptedException {
+        try (SudokuBinaryParser records = parser) {
+            if (records.getBlockSize() != validator.getBlockSize()) {
+                throw new IOException("Block size of " + name + " is " + records.getBlockSize());
+            }
+            while (failure == null) {
+                Item item = new Item(batcher.sequence, name + ":" + (records.getNumberOfRecords() + 1));
+                SudokuVerdict verdict = null;
+                try {
+                    long start = System.nanoTime();
+                    item.state = records.next();
+                    item.parseNanos = System.nanoTime() - start;
+                    if (item.state == null) {
+                        break;
+                    }
+                } catch (SudokuParseException e) {
+                    if (e.getLine() < 0) {
+                        batcher.add(new Item(batcher.sequence, name), SudokuVerdict.PARSE_ERROR);
+                        break;
+                    }
+                    verdict = SudokuVerdict.PARSE_ERROR;
+                } catch (SudokuStateException e) {
+                    verdict = SudokuVerdict.INVALID;
+                }
+                batcher.add(item, verdict);
+            }
+        }
+    }
+
+    /**
+     * Collects the items of the {@code read} stage into batches and puts them to the queue, measuring the stage.
+     */
+    private final class Batcher {
+        private final BlockingQueue<List<Item>> out;
+        private List<Item> batch = new ArrayList<>(batchSize);
+        private long busyStart = System.nanoTime();
+        long sequence = 0;
+
+        Batcher(final BlockingQueue<List<Item>> out) {
+            this.out = out;
+        }
+
+        void add(final Item item, final SudokuVerdict verdict) throws InterruptedException {
+            item.verdict = verdict;
+            batch.add(item);
+            sequence++;
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws InterruptedException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            readStats.processed(batch.size(), System.nanoTime() - busyStart);
+            put(batch);
+            batch = new ArrayList<>(batchSize);
+            busyStart = System.nanoTime();
+        }
+
+        void put(final List<Item> items) throws InterruptedException {
+            long start = System.nanoTime();
+            if (orderedWriter != null) {
+                orderedWriter.awaitWindow(sequence - 1);
+            }
+            out.put(items);
+            readStats.blocked(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs a thread of a stage: takes batches from the input queue until it gets the given number of end markers,
+     * processes them and puts them to the output queue, then puts the given number of end markers
+     * to the output queue. After a failure of any stage the batches are only passed on and the {@code read} stage
+     * no longer waits for the results to be written, so that no stage blocks forever.
+     */
+    private void runStage(final SudokuStageStats stats, final BlockingQueue<List<Item>> in, final int noEnds,
+                          final BlockingQueue<List<Item>> out, final int noOutEnds, final Consumer<List<Item>> task) {
+        try {
+            int ends = 0;
+            while (ends < noEnds) {
+                long start = System.nanoTime();
+                int depth = in.size();
+                List<Item> batch = in.take();
+                long taken = System.nanoTime();
+                stats.taken(Math.max(depth, 1), taken - start);
+                if (batch == END) {
+                    ends++;
+                    continue;
+                }
+                if (failure == null) {
+                    try {
+                        task.accept(batch);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    }
+                }
+                long processed = System.nanoTime();
+                stats.processed(batch.size(), processed - taken);
+                if (out != null) {
+                    out.put(batch);
+                    stats.blocked(System.nanoTime() - processed);
+                }
+            }
+            for (int i = 0; i < noOutEnds; i++) {
+                out.put(END);
+            }
+        } catch (InterruptedException e) {
+            // the pipeline is stopped
+        }
+    }
+
+    /**
+     * Records the first failure of a stage and releases the {@code read} stage waiting for results
+     * that will not be written.
+     */
+    private synchronized void fail(final RuntimeException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        if (orderedWriter != null) {
+            orderedWriter.abort();
+        }
+    }
+
+    private void parse(final Item item) {
+        if (item.lines == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            item.state = item.parser.parse(item.lineNo, item.lines);
+        } catch (SudokuParseException e) {
+            item.verdict = SudokuVerdict.PARSE_ERROR;
+        } catch (SudokuStateException e) {
+            item.verdict = SudokuVerdict.INVALID;
+        }
+        item.parseNanos = System.nanoTime() - start;
+        item.parser = null;
+        item.lines = null;
+    }
+
+    /**
+     * Validates the parsed puzzles of a batch together, so that a {@link SudokuBatchSolver} engine solves them at once.
+     * A puzzle whose validation fails gets the {@link SudokuVerdict#ERROR} verdict.
+     */
+    private void solve(final List<Item> batch) {
+        List<Item> parsed = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            if (item.verdict != null) {
+                item.result = new SudokuResult(item.sequence, item.source, item.verdict);
+            }
+            else {
+                parsed.add(item);
+            }
+        }
+        int n = parsed.size();
+        long[] sequences = new long[n];
+        String[] sources = new String[n];
+        SudokuState[] states = new SudokuState[n];
+        long[] parseNanos = new long[n];
+        for (int i = 0; i < n; i++) {
+            Item item = parsed.get(i);
+            sequences[i] = item.sequence;
+            sources[i] = item.source;
+            states[i] = item.state;
+            parseNanos[i] = item.parseNanos;
+            item.state = null;
+        }
+        SudokuResult[] results;
+        try {
+            results = validator.validate(sequences, sources, states, parseNanos);
+        } catch (RuntimeException | StackOverflowError e) {
+            // a puzzle failed, the others are validated one by one
+            results = new SudokuResult[n];
+            for (int i = 0; i < n; i++) {
+                try {
+                    results[i] = validator.validate(sequences[i], sources[i], states[i], parseNanos[i]);
+                } catch (RuntimeException | StackOverflowError error) {
+                    results[i] = new SudokuResult(sequences[i], sources[i], SudokuVerdict.ERROR);
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            parsed.get(i).result = results[i];
+        }
+    }
+}
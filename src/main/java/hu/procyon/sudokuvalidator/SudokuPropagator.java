@@ -0,0 +1,20 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * A constraint propagation stage, which can be plugged into {@link SudokuBacktracker}.
+ * It is run on the starting state and after every step of the search, and it
+ * sets the digits that are forced by the current state.
+ * <p>
+ * A propagator used by a parallel search is called from more threads at the same time,
+ * so it must be thread-safe.
+ */
+public interface SudokuPropagator {
+
+    /**
+     * Sets the forced digits in the given state, as long as there are any.
+     *
+     * @param state the Sudoku state to be modified
+     * @return false if the state turned out to have no solution, true otherwise
+     */
+    boolean propagate(SudokuState state);
+}
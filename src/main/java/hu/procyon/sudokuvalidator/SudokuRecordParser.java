@@ -0,0 +1,64 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A source of many {@code SudokuState}s parsed one record at a time, such as a
+ * multi-puzzle stream ({@link SudokuStreamParser}) or a memory-mapped file ({@link SudokuMappedParser}).
+ * <p>
+ * A record with an error is consumed entirely before the exception is thrown,
+ * so {@link #next()} can be called again to continue with the following record.
+ * <p>
+ * {@link #open(File, int)} chooses the parser for a file.
+ */
+public interface SudokuRecordParser extends Closeable {
+
+    /**
+     * Parses the next record.
+     * @return new {@code SudokuState} instance, or null if there are no more records
+     * @throws SudokuParseException when the format of the record is not valid, or with line -1
+     * when there is an I/O error and no more records can be read
+     * @throws SudokuStateException when the state in the record is not valid
+     */
+    SudokuState next() throws SudokuParseException, SudokuStateException;
+
+    /**
+     * Gives the number of the first line of the last record read (0-based), or -1 if no record is read yet.
+     * @return line number of the last record
+     */
+    int getRecordLineNumber();
+
+    /**
+     * Gives the number of records read so far, including the erroneous ones.
+     * @return number of records
+     */
+    int getNumberOfRecords();
+
+    /**
+     * Opens a multi-puzzle file: a binary corpus file with a {@link SudokuBinaryParser}, any other regular file
+     * with a {@link SudokuMappedParser}, and a file that cannot be mapped, such as a pipe or a device,
+     * with a {@link SudokuStreamParser}.
+     * @param file the file
+     * @param blockSize the block size of the puzzles
+     * @return the parser of the records of the file
+     * @throws IOException if the file cannot be opened, or it is a binary file with another block size
+     */
+    static SudokuRecordParser open(final File file, final int blockSize) throws IOException {
+        if (SudokuBinaryParser.isBinaryFile(file)) {
+            SudokuBinaryParser parser = new SudokuBinaryParser(file);
+            if (parser.getBlockSize() != blockSize) {
+                parser.close();
+                throw new IOException("Block size of " + file.getPath() + " is " + parser.getBlockSize());
+            }
+            return parser;
+        }
+        if (Files.isRegularFile(file.toPath())) {
+            return new SudokuMappedParser(file, blockSize);
+        }
+        return new SudokuStreamParser(new FileReader(file), blockSize);
+    }
+}
@@ -0,0 +1,46 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Data class for the result of validating one puzzle in batch mode.
+ */
+public class SudokuResult {
+
+    /** The 0-based number of the puzzle in the order of the input. */
+    public final long sequence;
+    /** The path of the puzzle, or the name of the stream and the number of the puzzle in it. */
+    public final String source;
+    public final SudokuVerdict verdict;
+    /** The measurements of the validation, or null if they are not collected or the puzzle was not solved. */
+    public final SudokuMetrics metrics;
+    /** The check of {@link SudokuAnalyzer} that rejected the puzzle before solving it, or null. */
+    public final SudokuFinding finding;
+    /** A solution of the puzzle if it was asked for and the puzzle has one, otherwise null. */
+    public final SudokuState solution;
+
+    public SudokuResult(final long sequence, final String source, final SudokuVerdict verdict) {
+        this(sequence, source, verdict, null, null);
+    }
+
+    public SudokuResult(final long sequence, final String source, final SudokuVerdict verdict, final SudokuMetrics metrics,
+                        final SudokuFinding finding) {
+        this(sequence, source, verdict, metrics, finding, null);
+    }
+
+    public SudokuResult(final long sequence, final String source, final SudokuVerdict verdict, final SudokuMetrics metrics,
+                        final SudokuFinding finding, final SudokuState solution) {
+        this.sequence = sequence;
+        this.source = source;
+        this.verdict = verdict;
+        this.metrics = metrics;
+        this.finding = finding;
+        this.solution = solution;
+    }
+
+    /**
+     * Gives the result line of the batch mode: the source, the verdict and its code separated by tabs.
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder(source).append('\t').append(verdict.name()).append('\t').append(verdict.getCode()).toString();
+    }
+}
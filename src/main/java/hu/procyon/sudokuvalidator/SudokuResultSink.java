@@ -0,0 +1,14 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Receives the results of the batch validation. Implementations must be thread-safe,
+ * as results are delivered by the worker threads in parallel mode.
+ */
+public interface SudokuResultSink {
+
+    /**
+     * Receives the result of a puzzle.
+     * @param result the result
+     */
+    void accept(SudokuResult result);
+}
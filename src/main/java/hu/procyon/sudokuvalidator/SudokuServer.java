@@ -0,0 +1,185 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running validation service on a local HTTP endpoint, so that a warm JVM serves
+ * every request instead of starting the validator for each puzzle.
+ * <p>
+ * {@code POST /validate} takes one or more puzzles in the body, in the formats of
+ * {@link SudokuStreamParser} with the block size of the validator, and responds with a result line for each of them in the
+ * form of the batch mode, where the source is the 1-based number of the puzzle in the request:
+ * <pre>
+ * 1\tVALID\t0
+ * 2\tNOT_UNIQUE\t5
+ * </pre>
+ * {@code GET /health} responds with {@code OK}.
+ * <p>
+ * Requests are validated by a bounded pool of worker threads, each with its own solver engine
+ * (see {@link SudokuBatchValidator#setEngine(String, SudokuHeuristic)}). When every worker is busy
+ * and the queue of the pool is full, requests are rejected with {@code 503 Service Unavailable}
+ * and a {@code Retry-After} header, so callers slow down instead of piling up.
+ * A request failing with an unexpected error is answered with {@code 500 Internal Server Error}.
+ */
+public class SudokuServer {
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_BAD_METHOD = 405;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+    private static final int HTTP_UNAVAILABLE = 503;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final SudokuBatchValidator validator;
+    private final ThreadPoolExecutor workers;
+    private HttpServer server;
+
+    /**
+     * Creates a server validating the puzzles with the engine and the uniqueness setting of the given validator.
+     * @param validator the validator of the puzzles, used by every worker thread
+     * @param threads the number of worker threads
+     * @param queueSize the number of requests waiting for a worker before new requests are rejected
+     */
+    public SudokuServer(final SudokuBatchValidator validator, final int threads, final int queueSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.validator = validator;
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue);
+    }
+
+    /**
+     * Starts listening on the given address.
+     * @param address the local address and port, port 0 for any free port
+     * @throws IOException if the server cannot be bound to the address
+     */
+    public void start(final InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/validate", exchange -> dispatch(exchange, "POST"));
+        server.createContext("/health", exchange -> dispatch(exchange, "GET"));
+        server.start();
+    }
+
+    /**
+     * Gives the port the server listens on.
+     * @return the port number
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Waits until the requests in progress are answered, then stops the server.
+     * Requests arriving in the meantime are rejected with {@code 503 Service Unavailable}.
+     * @param delaySeconds the maximum time to wait for the requests in progress
+     */
+    public void stop(final int delaySeconds) {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Runs on the dispatcher thread of the HTTP server: hands the request to a worker,
+     * or rejects it if the pool is full.
+     */
+    private void dispatch(final HttpExchange exchange, final String method) throws IOException {
+        if (!method.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            respond(exchange, HTTP_BAD_METHOD, "");
+            return;
+        }
+        if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+            respond(exchange, HTTP_NOT_FOUND, "");
+            return;
+        }
+        try {
+            workers.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            respond(exchange, HTTP_UNAVAILABLE, "Too many requests\n");
+        }
+    }
+
+    private void handle(final HttpExchange exchange) {
+        try {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, HTTP_OK, "OK\n");
+            }
+            else {
+                respond(exchange, HTTP_OK, validate(exchange));
+            }
+        } catch (IOException e) {
+            // the client is gone, nothing to respond
+        } catch (RuntimeException | StackOverflowError e) {
+            try {
+                respond(exchange, HTTP_INTERNAL_ERROR, "Internal error\n");
+            } catch (IOException | RuntimeException f) {
+                // the response has been started already or the client is gone
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Validates every puzzle of the request body.
+     * @return the result lines
+     */
+    private String validate(final HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (SudokuStreamParser parser = new SudokuStreamParser(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII), validator.getBlockSize())) {
+            while (true) {
+                String source = Integer.toString(parser.getNumberOfRecords() + 1);
+                SudokuVerdict verdict;
+                try {
+                    SudokuState state = parser.next();
+                    if (state == null) {
+                        break;
+                    }
+                    verdict = validator.validate(state);
+                } catch (SudokuParseException e) {
+                    if (e.getLine() < 0) {
+                        throw new IOException(e);
+                    }
+                    verdict = SudokuVerdict.PARSE_ERROR;
+                } catch (SudokuStateException e) {
+                    verdict = SudokuVerdict.INVALID;
+                }
+                sb.append(new SudokuResult(parser.getNumberOfRecords() - 1, source, verdict)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+        exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
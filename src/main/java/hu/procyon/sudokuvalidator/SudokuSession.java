@@ -0,0 +1,223 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A puzzle being edited digit by digit, which is revalidated after every change without solving it from scratch.
+ * <p>
+ * The session keeps up to two solutions found for the puzzle, and the number of its solutions (up to 2) once it is known.
+ * Setting a digit only removes solutions, so the kept solutions with the same digit in the cell are still solutions;
+ * clearing a digit only adds solutions, so every kept solution remains one. Most changes are therefore decided
+ * without a search: a puzzle with a kept solution has a solution, and one with two kept solutions has more than one.
+ * <p>
+ * Otherwise the changed puzzle is searched. When a digit is cleared in a puzzle known to have a unique solution,
+ * only the cleared cells are searched: every other solution differs from the unique one in a cleared cell,
+ * so the cleared cells are tried with their other possible digits instead of counting the solutions of the whole puzzle.
+ * <p>
+ * The verdicts are the same as those of {@link SudokuBatchValidator#validate(SudokuState)}: {@link SudokuVerdict#INVALID}
+ * for a puzzle without a solution, {@link SudokuVerdict#NOT_UNIQUE} if uniqueness is checked and there are more solutions,
+ * {@link SudokuVerdict#UNDETERMINED} if the search exceeded the budget of the engine, {@link SudokuVerdict#VALID} otherwise.
+ * A session is not thread-safe.
+ */
+public class SudokuSession {
+
+    private final SudokuState state;
+    private final SudokuSolver solver;
+    private final boolean uniquenessChecked;
+    private final SudokuAnalyzer analyzer = new SudokuAnalyzer();
+
+    /** Distinct solutions of the current puzzle, at most 2. */
+    private final List<SudokuState> solutions = new ArrayList<>(2);
+    /** The number of solutions of the current puzzle up to 2, or -1 if it is not known. */
+    private int noSolutions = -1;
+    /**
+     * A solution such that every other solution of the current puzzle has a different digit in one of
+     * {@link #clearedCells}, or null. It is the unique solution of the puzzle before those cells were cleared.
+     */
+    private SudokuState unique = null;
+    private final BitSet clearedCells = new BitSet();
+
+    /**
+     * Creates a session with the default engine.
+     * @param puzzle the initial puzzle, which is copied
+     * @param uniquenessChecked whether a puzzle with more than one solution is {@link SudokuVerdict#NOT_UNIQUE}
+     */
+    public SudokuSession(final SudokuState puzzle, final boolean uniquenessChecked) {
+        this(puzzle, SudokuSolvers.create(SudokuSolvers.DEFAULT, SudokuHeuristic.MRV), uniquenessChecked);
+    }
+
+    /**
+     * Creates a session searching with the given engine. The budget set in the statistics of the engine
+     * applies to each search.
+     * @param puzzle the initial puzzle, which is copied
+     * @param solver the engine, which must not be used by others during the session
+     * @param uniquenessChecked whether a puzzle with more than one solution is {@link SudokuVerdict#NOT_UNIQUE}
+     */
+    public SudokuSession(final SudokuState puzzle, final SudokuSolver solver, final boolean uniquenessChecked) {
+        this.state = puzzle.copy();
+        this.solver = solver;
+        this.uniquenessChecked = uniquenessChecked;
+    }
+
+    /**
+     * Gives the current puzzle.
+     * @return a copy of the puzzle
+     */
+    public SudokuState getState() {
+        return state.copy();
+    }
+
+    /**
+     * Sets a digit in the puzzle, like {@link SudokuState#setDigit(int, int, int)}.
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @param digit the digit 1 to size to be set in the given cell
+     * @return true if the digit is set, false if the cell is not empty or the digit is excluded
+     */
+    public boolean setDigit(final int row, final int column, final int digit) {
+        if (!state.setDigit(row, column, digit)) {
+            return false;
+        }
+        for (Iterator<SudokuState> it = solutions.iterator(); it.hasNext(); ) {
+            if (it.next().getDigit(row, column) != digit) {
+                it.remove();
+            }
+        }
+        if (unique != null && unique.getDigit(row, column) != digit) {
+            unique = null;
+            clearedCells.clear();
+        }
+        if (noSolutions == 1) {
+            noSolutions = solutions.size();
+        }
+        else if (noSolutions != 0) {
+            noSolutions = solutions.size() == 2 ? 2 : -1;
+        }
+        return true;
+    }
+
+    /**
+     * Clears a cell of the puzzle, like {@link SudokuState#unsetDigit(int, int)}.
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @return the digit that was set in the cell, or 0 if the cell was already empty
+     */
+    public int unsetDigit(final int row, final int column) {
+        int digit = state.unsetDigit(row, column);
+        if (digit == 0) {
+            return 0;
+        }
+        if (unique != null) {
+            clearedCells.set(row * state.getSize() + column);
+        }
+        if (noSolutions < 2) {
+            noSolutions = -1;
+        }
+        return digit;
+    }
+
+    /**
+     * Validates the current puzzle, searching it only if the kept solutions do not decide it.
+     * @return the verdict for the puzzle
+     */
+    public SudokuVerdict getVerdict() {
+        int limit = uniquenessChecked ? 2 : 1;
+        if (solutions.size() >= limit) {
+            return limit == 1 ? SudokuVerdict.VALID : SudokuVerdict.NOT_UNIQUE;
+        }
+        if (noSolutions >= 0) {
+            return getVerdict(noSolutions);
+        }
+        SudokuFinding finding = analyzer.analyze(state, uniquenessChecked);
+        if (finding != null && finding.check.isContradiction()) {
+            noSolutions = 0;
+            return SudokuVerdict.INVALID;
+        }
+        if (solutions.isEmpty()) {
+            SudokuState solution = solver.findSolution(state);
+            if (solution == null) {
+                if (solver.getStats().isAborted()) {
+                    return SudokuVerdict.UNDETERMINED;
+                }
+                noSolutions = 0;
+                return SudokuVerdict.INVALID;
+            }
+            solutions.add(solution);
+        }
+        if (limit == 1) {
+            return SudokuVerdict.VALID;
+        }
+        if (finding != null) {
+            // too few givens for a unique solution
+            return SudokuVerdict.NOT_UNIQUE;
+        }
+        return unique != null ? searchClearedCells() : countSolutions();
+    }
+
+    /**
+     * Gives a solution of the current puzzle, searching it only if no solution is kept.
+     * @return a copy of a solution, or null if the puzzle has none or the search was aborted
+     */
+    public SudokuState getSolution() {
+        if (solutions.isEmpty() && noSolutions != 0) {
+            getVerdict();
+        }
+        return solutions.isEmpty() ? null : solutions.get(0).copy();
+    }
+
+    private SudokuVerdict getVerdict(final int noSolutions) {
+        if (noSolutions == 0) {
+            return SudokuVerdict.INVALID;
+        }
+        return noSolutions == 1 || !uniquenessChecked ? SudokuVerdict.VALID : SudokuVerdict.NOT_UNIQUE;
+    }
+
+    /**
+     * Decides whether the solution kept is unique by counting the solutions of the whole puzzle.
+     */
+    private SudokuVerdict countSolutions() {
+        int count = solver.countSolutions(state, 2);
+        if (count < 2 && solver.getStats().isAborted()) {
+            return SudokuVerdict.UNDETERMINED;
+        }
+        noSolutions = count;
+        if (count == 1) {
+            unique = solutions.get(0);
+            clearedCells.clear();
+        }
+        return getVerdict(count);
+    }
+
+    /**
+     * Decides whether {@link #unique} is still unique by trying the other possible digits of the cleared cells.
+     */
+    private SudokuVerdict searchClearedCells() {
+        int size = state.getSize();
+        for (int cell = clearedCells.nextSetBit(0); cell >= 0; cell = clearedCells.nextSetBit(cell + 1)) {
+            int row = cell / size;
+            int column = cell % size;
+            long candidates = state.getCandidateMask(row, column) & ~(1L << unique.getDigit(row, column));
+            for (; candidates != 0; candidates &= candidates - 1) {
+                SudokuState probe = state.copy();
+                probe.setDigit(row, column, Long.numberOfTrailingZeros(candidates));
+                SudokuState solution = solver.findSolution(probe);
+                if (solution != null) {
+                    solutions.add(solution);
+                    noSolutions = 2;
+                    unique = null;
+                    clearedCells.clear();
+                    return SudokuVerdict.NOT_UNIQUE;
+                }
+                if (solver.getStats().isAborted()) {
+                    return SudokuVerdict.UNDETERMINED;
+                }
+            }
+        }
+        noSolutions = 1;
+        clearedCells.clear();
+        return SudokuVerdict.VALID;
+    }
+}
@@ -0,0 +1,167 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Propagates naked singles (empty cells with only one possible digit) and
+ * hidden singles (digits with only one possible cell in a row, column or block).
+ * <p>
+ * A contradiction is reported when an empty cell has no possible digit or a digit
+ * has no possible cell in a row, column or block. The class counts the forced
+ * digits and the contradictions found. The class is thread-safe, so it can be shared
+ * by the tasks of a parallel search.
+ */
+public class SudokuSinglesPropagator implements SudokuPropagator {
+
+    private final LongAdder noNakedSingles = new LongAdder();
+    private final LongAdder noHiddenSingles = new LongAdder();
+    private final LongAdder noContradictions = new LongAdder();
+
+    @Override
+    public boolean propagate(final SudokuState state) {
+        boolean changed;
+        do {
+            int nakedSingles = propagateNakedSingles(state);
+            int hiddenSingles = nakedSingles < 0 ? -1 : propagateHiddenSingles(state);
+            if (hiddenSingles < 0) {
+                noContradictions.increment();
+                return false;
+            }
+            changed = nakedSingles + hiddenSingles > 0;
+        } while (changed);
+        return true;
+    }
+
+    /**
+     * Gives the number of naked singles set since the creation or the last reset.
+     * @return number of naked singles
+     */
+    public long getNumberOfNakedSingles() {
+        return noNakedSingles.sum();
+    }
+
+    /**
+     * Gives the number of hidden singles set since the creation or the last reset.
+     * @return number of hidden singles
+     */
+    public long getNumberOfHiddenSingles() {
+        return noHiddenSingles.sum();
+    }
+
+    /**
+     * Gives the number of contradictions found since the creation or the last reset.
+     * @return number of contradictions
+     */
+    public long getNumberOfContradictions() {
+        return noContradictions.sum();
+    }
+
+    /**
+     * Resets the counters to zero.
+     */
+    public void reset() {
+        noNakedSingles.reset();
+        noHiddenSingles.reset();
+        noContradictions.reset();
+    }
+
+    /**
+     * Sets every empty cell with a single possible digit.
+     * @return the number of digits set, or -1 in case of a contradiction
+     */
+    private int propagateNakedSingles(final SudokuState state) {
+        int noSet = 0;
+        for (int row = 0; row < state.getSize(); row++) {
+            for (int column = 0; column < state.getSize(); column++) {
+                if (!state.isDigitSet(row, column)) {
+                    long candidates = state.getCandidateMask(row, column);
+                    if (candidates == 0) {
+                        return -1;
+                    }
+                    if (Long.bitCount(candidates) == 1) {
+                        state.setDigit(row, column, Long.numberOfTrailingZeros(candidates));
+                        noSet++;
+                    }
+                }
+            }
+        }
+        noNakedSingles.add(noSet);
+        return noSet;
+    }
+
+    /**
+     * Sets every digit that has a single possible cell in a row, column or block.
+     * @return the number of digits set, or -1 in case of a contradiction
+     */
+    private int propagateHiddenSingles(final SudokuState state) {
+        int size = state.getSize();
+        int blockSize = state.getBlockSize();
+        long allDigits = ((1L << size) - 1) << 1;
+        int noSet = 0;
+        for (int unit = 0; unit < 3 * size; unit++) {
+            long once = 0;
+            long twice = 0;
+            long placed = 0;
+            for (int i = 0; i < size; i++) {
+                int row = unitRow(unit, i, size, blockSize);
+                int column = unitColumn(unit, i, size, blockSize);
+                long candidates = state.getCandidateMask(row, column);
+                twice |= once & candidates;
+                once |= candidates;
+                placed |= 1L << state.getDigit(row, column);
+            }
+            if ((allDigits & ~(once | placed)) != 0) {
+                return -1;
+            }
+            long singles = once & ~twice;
+            for (int i = 0; i < size && singles != 0; i++) {
+                int row = unitRow(unit, i, size, blockSize);
+                int column = unitColumn(unit, i, size, blockSize);
+                long single = singles & state.getCandidateMask(row, column);
+                if (single != 0) {
+                    singles &= ~single;
+                    if (Long.bitCount(single) > 1 || !state.setDigit(row, column, Long.numberOfTrailingZeros(single))) {
+                        return -1;
+                    }
+                    noSet++;
+                }
+            }
+            if (singles != 0) {
+                // a cell of a single was filled by another single of the same unit
+                return -1;
+            }
+        }
+        noHiddenSingles.add(noSet);
+        return noSet;
+    }
+
+    /**
+     * Gives the row of the i-th cell of a unit. Units 0..size-1 are the rows,
+     * the next size units are the columns, and the last size units are the blocks.
+     */
+    private static int unitRow(final int unit, final int i, final int size, final int blockSize) {
+        if (unit < size) {
+            return unit;
+        }
+        if (unit < 2 * size) {
+            return i;
+        }
+        int block = unit - 2 * size;
+        return block / blockSize * blockSize + i / blockSize;
+    }
+
+    /**
+     * Gives the column of the i-th cell of a unit.
+     * @see #unitRow(int, int, int, int)
+     */
+    private static int unitColumn(final int unit, final int i, final int size, final int blockSize) {
+        if (unit < size) {
+            return i;
+        }
+        if (unit < 2 * size) {
+            return unit - size;
+        }
+        int block = unit - 2 * size;
+        return block % blockSize * blockSize + i % blockSize;
+    }
+}
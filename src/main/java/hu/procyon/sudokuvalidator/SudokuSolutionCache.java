@@ -0,0 +1,190 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the number of solutions of puzzles, keyed by their grid, so that repeated puzzles
+ * are solved only once. Computing a canonical form (see {@link SudokuCanonicalizer}) costs more than
+ * solving most puzzles, so puzzles are keyed by their canonical form too only if they take long to solve,
+ * so that puzzles equivalent to them under the Sudoku symmetries are hits too. A canonical form is
+ * itself a puzzle equivalent to the one it was computed for, so both kinds of keys share the entries.
+ * Only 9×9 puzzles are cached.
+ * <p>
+ * The least recently used entry is evicted when the cache is full. The cache is thread-safe,
+ * and counts its hits and misses. It can be saved to and loaded from a text file with a line
+ * per entry: the solution limit, the grid or canonical form and the number of solutions, separated by tabs.
+ */
+public class SudokuSolutionCache {
+
+    private final ThreadLocal<SudokuCanonicalizer> canonicalizers = ThreadLocal.withInitial(SudokuCanonicalizer::new);
+    private final Map<String, Integer> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates an empty cache.
+     * @param capacity the maximum number of entries
+     */
+    public SudokuSolutionCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        entries = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gives the key of a puzzle for a solution limit: its grid in the one-line format.
+     * @param state the puzzle
+     * @param limit the maximum number of solutions searched
+     * @return the key for {@link #get(String)} and {@link #put(String, int)},
+     *      or null if the puzzle cannot be cached because it is not a 9×9 puzzle
+     */
+    public String getKey(final SudokuState state, final int limit) {
+        if (state.getBlockSize() != SudokuState.DEFAULT_BLOCK_SIZE) {
+            return null;
+        }
+        int size = state.getSize();
+        StringBuilder sb = new StringBuilder(3 + size * size).append(limit).append('\t');
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int digit = state.getDigit(row, column);
+                sb.append(digit == 0 ? '.' : (char) ('0' + digit));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gives the key of a puzzle for a solution limit by its canonical form, which is the same
+     * for the puzzles equivalent to it.
+     * @param state the puzzle
+     * @param limit the maximum number of solutions searched
+     * @return the key for {@link #get(String)} and {@link #put(String, int)},
+     *      or null if the puzzle cannot be cached because it is not a 9×9 puzzle
+     */
+    public String getCanonicalKey(final SudokuState state, final int limit) {
+        if (state.getBlockSize() != SudokuState.DEFAULT_BLOCK_SIZE) {
+            return null;
+        }
+        return limit + "\t" + canonicalizers.get().canonicalize(state);
+    }
+
+    /**
+     * Gives the number of solutions cached for a key, counting a hit or a miss.
+     * @param key the key of the puzzle
+     * @return the number of solutions, or -1 if the key is not in the cache
+     */
+    public synchronized int get(final String key) {
+        Integer noSolutions = entries.get(key);
+        if (noSolutions == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        return noSolutions;
+    }
+
+    /**
+     * Stores the number of solutions for a key.
+     * @param key the key of the puzzle
+     * @param noSolutions the number of solutions
+     */
+    public synchronized void put(final String key, final int noSolutions) {
+        entries.put(key, noSolutions);
+    }
+
+    /**
+     * Gives the number of entries in the cache.
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gives the number of lookups that found their key.
+     * @return number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gives the number of lookups that did not find their key.
+     * @return number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gives the ratio of the hits to all lookups.
+     * @return hit rate between 0 and 1, 0 if there was no lookup
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Adds the entries of a file saved by {@link #save(File)} to the cache.
+     * Malformed lines are skipped.
+     * @param file the cache file
+     * @throws IOException if the file cannot be read
+     */
+    public void load(final File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('\t');
+                if (separator > 0) {
+                    try {
+                        put(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1)));
+                    } catch (NumberFormatException e) {
+                        // skip the malformed line
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of the cache to a file, from the least recently used one, replacing
+     * the file only when every entry is written.
+     * @param file the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.US_ASCII)) {
+            synchronized (this) {
+                for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue().toString());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.3f entries=%d", hits, misses, getHitRate(), entries.size());
+    }
+}
@@ -0,0 +1,53 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Common interface of the Sudoku solver engines.
+ * <p>
+ * Engines are created by name through {@link SudokuSolvers}. An engine instance may keep
+ * mutable search structures, so it must not be used by more than one thread at a time.
+ * <p>
+ * Every engine stops its search when the budget set in its statistics is exceeded
+ * (see {@link SudokuSolverStats#setBudget(long, long)}). The result of such a search is
+ * incomplete, which is told by {@link SudokuSolverStats#isAborted()}.
+ */
+public interface SudokuSolver {
+
+    /**
+     * Finds a solution for the given {@code SudokuState} if there is one or
+     * returns null if there isn't.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @return final state or null if there is no solution, or if the search was aborted without finding one
+     */
+    SudokuState findSolution(SudokuState initial);
+
+    /**
+     * Counts the solutions of the given {@code SudokuState}, but stops the search
+     * as soon as {@code limit} solutions are found.
+     *
+     * @param initial the starting Sudoku table state, which is not modified
+     * @param limit the maximum number of solutions to be found, at least 1
+     * @return the number of solutions, but at most {@code limit}; if the search was aborted,
+     *      the number of solutions found before
+     * @throws IllegalArgumentException if the limit is less than 1
+     */
+    int countSolutions(SudokuState initial, int limit);
+
+    /**
+     * Gives the first solution found by the last search, so that counting the solutions of a puzzle
+     * also solves it. Engines that do not keep the solutions when counting them return null.
+     *
+     * @return the first solution of the last search, or null if it found none or the engine did not keep it
+     */
+    default SudokuState getFirstSolution() {
+        return null;
+    }
+
+    /**
+     * Gives the statistics of the last search. The returned object is reset
+     * and updated by every subsequent search.
+     *
+     * @return the statistics of the last search
+     */
+    SudokuSolverStats getStats();
+}
@@ -0,0 +1,323 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a search, reported the same way by every {@link SudokuSolver}.
+ * <p>
+ * A node is a step of the search (a digit tried in a cell, or a row chosen in the exact
+ * cover matrix), a backtrack is a return to a previous level after all the steps of a
+ * level have been tried, and a forced move is a digit set by constraint propagation.
+ * <p>
+ * The maximum depth of the search and the histogram of the branching factors (the number
+ * of possible steps where the search branches) are only collected if the statistics are
+ * {@link #setDetailed(boolean) detailed}, so that they cost nothing in the search loops otherwise.
+ * <p>
+ * A search can be given a {@link #setBudget(long, long) budget} of nodes and time. The budget is checked
+ * when a node is counted, the time only at every 1024 nodes, and the solvers stop
+ * as soon as it is exceeded, leaving the search {@link #isAborted() aborted}.
+ */
+public class SudokuSolverStats {
+
+    private static final int INITIAL_BRANCHING_LENGTH = 10;
+    /** Number of nodes between two checks of the time budget. */
+    static final long CHECK_INTERVAL = 1024;
+
+    private boolean detailed = false;
+    private long nodes = 0;
+    private long backtracks = 0;
+    private long forcedMoves = 0;
+    private int maxDepth = 0;
+    private long[] branching = new long[INITIAL_BRANCHING_LENGTH];
+
+    private long maxNodes = 0;
+    private long timeoutNanos = 0;
+    /** The time the search must stop at, in {@link System#nanoTime()}. */
+    private long deadline = 0;
+    /** The number of nodes at which the budget is checked next. */
+    private long checkpoint = Long.MAX_VALUE;
+    private boolean aborted = false;
+    /** The nodes of the tasks of a parallel search, which share the node budget. */
+    private AtomicLong sharedNodes = null;
+    private long sharedNodesAdded = 0;
+
+    /**
+     * Gives the number of search nodes.
+     * @return number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gives the number of backtracks.
+     * @return number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Gives the number of digits set by constraint propagation.
+     * @return number of forced moves
+     */
+    public long getForcedMoves() {
+        return forcedMoves;
+    }
+
+    /**
+     * Gives the maximum depth of the search path, if the statistics are detailed.
+     * @return maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gives how many times the search branched with the given number of possible steps,
+     * if the statistics are detailed.
+     * @param factor the branching factor
+     * @return number of branchings with the given factor
+     */
+    public long getBranching(final int factor) {
+        return factor < branching.length ? branching[factor] : 0;
+    }
+
+    /**
+     * Gives the largest branching factor that occurred, or -1 if the search did not branch.
+     * @return the largest branching factor
+     */
+    public int getMaxBranching() {
+        int factor = branching.length - 1;
+        while (factor >= 0 && branching[factor] == 0) {
+            factor--;
+        }
+        return factor;
+    }
+
+    /**
+     * Tells whether the maximum depth and the branching factors are collected.
+     * @return true if the statistics are detailed
+     */
+    public boolean isDetailed() {
+        return detailed;
+    }
+
+    /**
+     * Sets whether the maximum depth and the branching factors are collected.
+     * @param detailed true to collect the detailed statistics
+     */
+    public void setDetailed(final boolean detailed) {
+        this.detailed = detailed;
+    }
+
+    /**
+     * Sets the budget of the searches. A search is aborted when it would visit more nodes than
+     * the node limit, or when it runs longer than the time limit. The time limit starts
+     * at the beginning of every search (see {@link #reset()}).
+     * @param maxNodes the maximum number of nodes of a search, 0 for no limit
+     * @param timeoutMillis the maximum time of a search in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setBudget(final long maxNodes, final long timeoutMillis) {
+        if (maxNodes < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Search budget must not be negative: " + maxNodes + " nodes, "
+                + timeoutMillis + " ms");
+        }
+        this.maxNodes = maxNodes;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Gives the maximum number of nodes of a search.
+     * @return the node limit, 0 if there is none
+     */
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Gives the maximum time of a search.
+     * @return the time limit in milliseconds, 0 if there is none
+     */
+    public long getTimeoutMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    }
+
+    /**
+     * Tells whether the search was stopped because it exceeded its budget. The result of
+     * an aborted search is incomplete: it may have missed solutions.
+     * @return true if the search was aborted
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Called by the solvers when a new search node is visited. The solvers must check
+     * {@link #isAborted()} after it, and stop the search if it is set.
+     */
+    void node() {
+        if (++nodes >= checkpoint) {
+            checkBudget();
+        }
+    }
+
+    /**
+     * Checks whether the budget is exceeded and sets the next checkpoint.
+     */
+    private void checkBudget() {
+        long total = nodes;
+        if (sharedNodes != null) {
+            total = sharedNodes.addAndGet(nodes - sharedNodesAdded);
+            sharedNodesAdded = nodes;
+        }
+        if (maxNodes > 0 && total > maxNodes || timeoutNanos > 0 && System.nanoTime() - deadline > 0) {
+            aborted = true;
+            checkpoint = Long.MAX_VALUE;
+            return;
+        }
+        long interval = timeoutNanos > 0 ? CHECK_INTERVAL : Long.MAX_VALUE;
+        if (maxNodes > 0) {
+            interval = Math.min(interval, maxNodes - total + 1);
+        }
+        checkpoint = interval == Long.MAX_VALUE ? Long.MAX_VALUE : nodes + interval;
+    }
+
+    /**
+     * Starts the budget of a new search.
+     */
+    private void startBudget() {
+        deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+        checkpoint = maxNodes > 0 || timeoutNanos > 0 ? 0 : Long.MAX_VALUE;
+        aborted = false;
+        sharedNodes = null;
+        sharedNodesAdded = 0;
+    }
+
+    /**
+     * Called by the solvers to run a search with the same budget as another one.
+     * @param other the statistics whose budget is taken over
+     */
+    void copyBudget(final SudokuSolverStats other) {
+        maxNodes = other.maxNodes;
+        timeoutNanos = other.timeoutNanos;
+    }
+
+    /**
+     * Called by the tasks of a parallel search to share the budget of the whole search, which is
+     * already started: the deadline is the same, and the nodes of every task count for the node limit.
+     * The nodes of the other tasks are only seen at every 1024 nodes of a task,
+     * so the search may visit somewhat more nodes than the limit.
+     * @param search the statistics of the whole search
+     */
+    void shareBudget(final SudokuSolverStats search) {
+        copyBudget(search);
+        synchronized (search) {
+            if (search.sharedNodes == null) {
+                search.sharedNodes = new AtomicLong(search.nodes);
+            }
+            sharedNodes = search.sharedNodes;
+        }
+        deadline = search.deadline;
+        checkpoint = maxNodes > 0 || timeoutNanos > 0 ? 0 : Long.MAX_VALUE;
+        aborted = false;
+        sharedNodesAdded = 0;
+    }
+
+    /**
+     * Called by the solvers when the search returns to a previous level.
+     */
+    void backtrack() {
+        backtracks++;
+    }
+
+    /**
+     * Called by the solvers when digits are set by constraint propagation.
+     * @param count the number of digits set
+     */
+    void forced(final int count) {
+        forcedMoves += count;
+    }
+
+    /**
+     * Called by the solvers, if the statistics are detailed, when the search path gets longer.
+     * @param depth the current depth of the search path
+     */
+    void depth(final int depth) {
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * Called by the solvers, if the statistics are detailed, when the search branches.
+     * @param factor the number of possible steps
+     */
+    void branch(final int factor) {
+        if (factor >= branching.length) {
+            branching = Arrays.copyOf(branching, factor + 1);
+        }
+        branching[factor]++;
+    }
+
+    /**
+     * Resets every counter to zero and starts the budget of a new search.
+     * Whether the statistics are detailed and the budget are not changed.
+     */
+    public void reset() {
+        nodes = 0;
+        backtracks = 0;
+        forcedMoves = 0;
+        maxDepth = 0;
+        Arrays.fill(branching, 0);
+        startBudget();
+    }
+
+    /**
+     * Adds the counters of another statistics to this one, to aggregate more searches.
+     * The maximum depth is the larger of the two, and the result is aborted if either of them is.
+     * @param other the statistics to be added
+     */
+    public void add(final SudokuSolverStats other) {
+        aborted |= other.aborted;
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        forcedMoves += other.forcedMoves;
+        depth(other.maxDepth);
+        if (other.branching.length > branching.length) {
+            branching = Arrays.copyOf(branching, other.branching.length);
+        }
+        for (int factor = 0; factor < other.branching.length; factor++) {
+            branching[factor] += other.branching[factor];
+        }
+    }
+
+    /**
+     * Gives a copy of these statistics.
+     * @return a new instance with the same counters
+     */
+    public SudokuSolverStats copy() {
+        SudokuSolverStats copy = new SudokuSolverStats();
+        copy.detailed = detailed;
+        copy.add(this);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("nodes=").append(nodes)
+            .append(" backtracks=").append(backtracks)
+            .append(" forcedMoves=").append(forcedMoves);
+        if (aborted) {
+            sb.append(" aborted");
+        }
+        if (detailed) {
+            sb.append(" maxDepth=").append(maxDepth).append(" branching=")
+                .append(Arrays.toString(Arrays.copyOf(branching, getMaxBranching() + 1)));
+        }
+        return sb.toString();
+    }
+}
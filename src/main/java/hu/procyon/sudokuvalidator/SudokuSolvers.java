@@ -0,0 +1,96 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Registry of the {@link SudokuSolver} engines by name.
+ * <p>
+ * The built-in engines are registered at class initialization, further engines can be
+ * added with {@link #register(String, Factory)}, so that they can be selected on the
+ * command line without changing the validator.
+ */
+public final class SudokuSolvers {
+
+    /** Back-tracking with naked and hidden singles propagation ({@link SudokuBacktracker}). */
+    public static final String BACKTRACK = "backtrack";
+    /** Allocation-free in-place back-tracking ({@link SudokuInPlaceBacktracker}). */
+    public static final String IN_PLACE = "inplace";
+    /** Back-tracking with propagation, split into fork/join tasks on the common pool ({@link SudokuBacktracker}). */
+    public static final String PARALLEL = "parallel";
+    /** Back-tracking with propagation on packed bit planes ({@link SudokuBitboardSolver}). */
+    public static final String BITBOARD = "bitboard";
+    /** Exact cover search with Dancing Links ({@link SudokuDancingLinks}). */
+    public static final String DANCING_LINKS = "dlx";
+    /** Lockstep propagation of groups of puzzles in SIMD lanes, where the Vector API is available ({@link SudokuLockstepSolver}). */
+    public static final String VECTOR = "vector";
+    /** The engine used if no engine is selected. */
+    public static final String DEFAULT = BACKTRACK;
+
+    private static final int PARALLEL_SPLIT_DEPTH = 2;
+
+    /**
+     * Creates new instances of an engine.
+     */
+    public interface Factory {
+        /**
+         * Creates a new engine instance.
+         * @param heuristic the cell selection heuristic of the engine
+         * @return the new engine
+         */
+        SudokuSolver create(SudokuHeuristic heuristic);
+    }
+
+    private static final Map<String, Factory> FACTORIES = new LinkedHashMap<>();
+
+    static {
+        register(BACKTRACK, heuristic -> new SudokuBacktracker(new SudokuSinglesPropagator(), heuristic));
+        register(PARALLEL, heuristic -> {
+            SudokuBacktracker backtracker = new SudokuBacktracker(new SudokuSinglesPropagator(), heuristic);
+            backtracker.setParallel(ForkJoinPool.commonPool(), PARALLEL_SPLIT_DEPTH);
+            return backtracker;
+        });
+        register(IN_PLACE, SudokuInPlaceBacktracker::new);
+        register(DANCING_LINKS, SudokuDancingLinks::new);
+        register(BITBOARD, SudokuBitboardSolver::new);
+        register(VECTOR, SudokuLockstepSolver::new);
+    }
+
+    private SudokuSolvers() {
+    }
+
+    /**
+     * Registers an engine, replacing any engine registered with the same name.
+     * @param name the name of the engine
+     * @param factory the factory creating the engine instances
+     */
+    public static synchronized void register(final String name, final Factory factory) {
+        FACTORIES.put(name, factory);
+    }
+
+    /**
+     * Creates a new instance of the engine with the given name.
+     * @param name the name of the engine
+     * @param heuristic the cell selection heuristic of the engine
+     * @return the new engine
+     * @throws IllegalArgumentException if there is no engine with the given name
+     */
+    public static synchronized SudokuSolver create(final String name, final SudokuHeuristic heuristic) {
+        Factory factory = FACTORIES.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown solver engine: " + name);
+        }
+        return factory.create(heuristic);
+    }
+
+    /**
+     * Gives the names of the registered engines in the order of registration.
+     * @return the engine names
+     */
+    public static synchronized List<String> getNames() {
+        return new ArrayList<>(FACTORIES.keySet());
+    }
+}
@@ -0,0 +1,138 @@
+package hu.procyon.sudokuvalidator;
+
+import java.util.Locale;
+
+/**
+ * Statistics of a stage of {@link SudokuPipeline}: the number of puzzles it processed, the time its threads
+ * were busy, waited for input or were blocked on a full output queue, and the depth of its input queue.
+ * <p>
+ * The stage with the highest utilization and a full input queue is the bottleneck of the pipeline.
+ * The methods are thread-safe, the threads of a stage update the same instance.
+ */
+public class SudokuStageStats {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+
+    private long items = 0;
+    private long busyNanos = 0;
+    private long idleNanos = 0;
+    private long blockedNanos = 0;
+    private long depthSum = 0;
+    private long depthSamples = 0;
+    private int maxDepth = 0;
+    private long startNanos = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * Creates the statistics of a stage.
+     * @param name the name of the stage
+     * @param threads the number of threads of the stage
+     * @param queueCapacity the capacity of the input queue of the stage in batches, 0 if it has none
+     */
+    public SudokuStageStats(final String name, final int threads, final int queueCapacity) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    synchronized void start() {
+        startNanos = System.nanoTime();
+    }
+
+    synchronized void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Adds a batch taken from the input queue.
+     * @param depth the number of batches in the queue when the batch was taken, including the batch
+     * @param waitNanos the time spent waiting for the batch
+     */
+    synchronized void taken(final int depth, final long waitNanos) {
+        depthSum += depth;
+        depthSamples++;
+        maxDepth = Math.max(maxDepth, depth);
+        idleNanos += waitNanos;
+    }
+
+    synchronized void processed(final int batchSize, final long nanos) {
+        items += batchSize;
+        busyNanos += nanos;
+    }
+
+    synchronized void blocked(final long nanos) {
+        blockedNanos += nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public synchronized long getItems() {
+        return items;
+    }
+
+    /**
+     * Gives the share of the time the threads of the stage were processing puzzles, from 0 to 1.
+     * @return utilization of the stage
+     */
+    public synchronized double getUtilization() {
+        return share(busyNanos);
+    }
+
+    /**
+     * Gives the share of the time the threads of the stage were waiting for input, from 0 to 1.
+     * @return idle time of the stage
+     */
+    public synchronized double getIdleRatio() {
+        return share(idleNanos);
+    }
+
+    /**
+     * Gives the share of the time the threads of the stage were blocked by a full output queue, from 0 to 1.
+     * @return blocked time of the stage
+     */
+    public synchronized double getBlockedRatio() {
+        return share(blockedNanos);
+    }
+
+    /**
+     * Gives the average number of batches in the input queue when a batch was taken.
+     * @return average queue depth, 0 if the stage has no input queue
+     */
+    public synchronized double getAverageQueueDepth() {
+        return depthSamples > 0 ? (double) depthSum / depthSamples : 0;
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    private double share(final long nanos) {
+        return elapsedNanos > 0 ? (double) nanos / elapsedNanos / threads : 0;
+    }
+
+    /**
+     * Gives a line of the statistics, e.g.
+     * {@code solve    4 threads   10000 puzzles  busy  97%  idle   2%  blocked   0%  queue 15.2 avg 16/16 max}.
+     */
+    @Override
+    public synchronized String toString() {
+        String line = String.format(Locale.ROOT, "%-8s %d %-7s %7d puzzles  busy %3.0f%%  idle %3.0f%%  blocked %3.0f%%",
+            name, threads, threads == 1 ? "thread" : "threads", items,
+            100 * getUtilization(), 100 * getIdleRatio(), 100 * getBlockedRatio());
+        return queueCapacity > 0
+            ? line + String.format(Locale.ROOT, "  queue %4.1f avg %d/%d max", getAverageQueueDepth(), maxDepth, queueCapacity)
+            : line;
+    }
+}
@@ -3,7 +3,7 @@ package hu.procyon.sudokuvalidator;
 import java.util.Arrays;
 
 /**
- * Represents a state in a 9×9 Sudoku solution, without the distinction between
+ * Represents a state in an N²×N² Sudoku solution (9×9 by default), without the distinction between
  * cells originally filled and those filled during solving the puzzle.
  * <p>
  * The class stores which digit is written in which Sudoku cell, which cells are
@@ -14,36 +14,171 @@ import java.util.Arrays;
  * The class makes sure that no invalid state can be reached, that is,
  * same digits in the same row, column or block cannot be used.
  * <p>
- * The rows and columns are identified by 0 to 8
- * from top to bottom and left to right, respectively.
- * Valid digits go from 1 to 9.
+ * The size of the table is given by its block size N: a table has N² rows, N² columns
+ * and N² blocks of N×N cells. The rows and columns are identified by 0 to N²-1
+ * (0 to 8 in a 9×9 table) from top to bottom and left to right, respectively.
+ * Valid digits go from 1 to N².
+ * <p>
+ * The empty cells are also indexed by their number of possible digits, so that
+ * {@link #getMostConstrainedCell()} does not need to scan the table. Setting or clearing a digit
+ * only marks the cells of the same row, column and block, which are moved to their new
+ * place in the index when it is used next. So digits set without using the index in between,
+ * e.g. by constraint propagation, cost as little as without the index.
  */
 public class SudokuState implements Cloneable {
-    private static final int N = 3;
-    private static final int SIZE = N * N;
+    /** The block size of a 9×9 table. */
+    public static final int DEFAULT_BLOCK_SIZE = 3;
+    /** The smallest supported block size (4×4 tables). */
+    public static final int MIN_BLOCK_SIZE = 2;
+    /** The largest supported block size (49×49 tables), so that every digit has a bit in a {@code long} mask. */
+    public static final int MAX_BLOCK_SIZE = 7;
+    /** Block of each cell (row by row) for every block size, so that no division is needed. */
+    private static final byte[][] BLOCK_OF = new byte[MAX_BLOCK_SIZE + 1][];
+    /** Row and column of each cell for every block size. */
+    private static final byte[][] ROW_OF = new byte[MAX_BLOCK_SIZE + 1][];
+    private static final byte[][] COLUMN_OF = new byte[MAX_BLOCK_SIZE + 1][];
+    /**
+     * The cells of the same row, column and block as each cell, and the cell itself,
+     * as bit sets for every block size, created when a state of the size is first created.
+     */
+    private static final long[][] PEERS_OF = new long[MAX_BLOCK_SIZE + 1][];
+
+    static {
+        for (int n = MIN_BLOCK_SIZE; n <= MAX_BLOCK_SIZE; n++) {
+            int size = n * n;
+            BLOCK_OF[n] = new byte[size * size];
+            ROW_OF[n] = new byte[size * size];
+            COLUMN_OF[n] = new byte[size * size];
+            for (int cell = 0; cell < size * size; cell++) {
+                BLOCK_OF[n][cell] = (byte) (cell / size / n * n + cell % size / n);
+                ROW_OF[n][cell] = (byte) (cell / size);
+                COLUMN_OF[n][cell] = (byte) (cell % size);
+            }
+        }
+    }
+
+    private final int n;
+    private final int size;
+    private final long allDigits;
+    private final byte[] blockOf;
+    private final byte[] rowOf;
+    private final byte[] columnOf;
+    private final long[] peersOf;
+    /** Number of words of a bit set of the cells. */
+    private final int words;
 
-    private byte[] table = new byte[SIZE * SIZE];
-    private short[] excluded = new short[SIZE * SIZE];
+    private final byte[] table;
+    /** Digits set in each row, column and block (in this order), as bit masks. */
+    private final long[] unitDigits;
     private int noDigits = 0;
+    /**
+     * The index of the empty cells: for every number of possible digits from 0 to size, the bit set
+     * of the empty cells with that many possible digits, followed by the bit set of the cells whose
+     * place in the index is not updated yet. Each bit set has {@link #words} words.
+     */
+    private final long[] index;
+
+    /**
+     * Creates an empty 9×9 state.
+     */
+    public SudokuState() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an empty state with the given block size, e.g. 4 for a 16×16 table.
+     * @param blockSize the size of a block, between {@link #MIN_BLOCK_SIZE} and {@link #MAX_BLOCK_SIZE}
+     * @throws IllegalArgumentException if the block size is not supported
+     */
+    public SudokuState(final int blockSize) {
+        this.n = checkBlockSize(blockSize);
+        this.size = blockSize * blockSize;
+        this.allDigits = ((1L << size) - 1) << 1;
+        this.blockOf = BLOCK_OF[blockSize];
+        this.rowOf = ROW_OF[blockSize];
+        this.columnOf = COLUMN_OF[blockSize];
+        this.peersOf = peersOf(blockSize);
+        this.words = (size * size + Long.SIZE - 1) / Long.SIZE;
+        this.table = new byte[size * size];
+        this.unitDigits = new long[3 * size];
+        this.index = new long[(size + 2) * words];
+        for (int cell = 0; cell < size * size; cell++) {
+            index[size * words + (cell >>> 6)] |= 1L << cell;
+        }
+    }
+
+    /**
+     * Creates a copy of the given state.
+     */
+    private SudokuState(final SudokuState other) {
+        this.n = other.n;
+        this.size = other.size;
+        this.allDigits = other.allDigits;
+        this.blockOf = other.blockOf;
+        this.rowOf = other.rowOf;
+        this.columnOf = other.columnOf;
+        this.peersOf = other.peersOf;
+        this.words = other.words;
+        this.table = other.table.clone();
+        this.unitDigits = other.unitDigits.clone();
+        this.noDigits = other.noDigits;
+        this.index = other.index.clone();
+    }
+
+    /**
+     * Gives the bit sets of the cells of the same row, column and block as each cell,
+     * creating them on the first call for the block size.
+     */
+    private static synchronized long[] peersOf(final int n) {
+        if (PEERS_OF[n] == null) {
+            int size = n * n;
+            int words = (size * size + Long.SIZE - 1) / Long.SIZE;
+            long[] peers = new long[size * size * words];
+            for (int cell = 0; cell < size * size; cell++) {
+                for (int other = 0; other < size * size; other++) {
+                    if (ROW_OF[n][cell] == ROW_OF[n][other] || COLUMN_OF[n][cell] == COLUMN_OF[n][other]
+                            || BLOCK_OF[n][cell] == BLOCK_OF[n][other]) {
+                        peers[cell * words + (other >>> 6)] |= 1L << other;
+                    }
+                }
+            }
+            PEERS_OF[n] = peers;
+        }
+        return PEERS_OF[n];
+    }
+
+    /**
+     * Checks that a block size is supported.
+     * @param blockSize the block size
+     * @return the block size
+     * @throws IllegalArgumentException if the block size is not supported
+     */
+    static int checkBlockSize(final int blockSize) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between " + MIN_BLOCK_SIZE + " and "
+                + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        return blockSize;
+    }
 
     /**
      * Returns whether a digit is set in the given row and column
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
      * @return true if a digit is set, false otherwise
      */
     public boolean isDigitSet(final int row, final int column) {
-        return table[row * SIZE + column] != 0;
+        return table[row * size + column] != 0;
     }
 
     /**
      * Returns the digit set at the given position position or 0 if it's not set.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
-     * @return the digit 1-9 if it's set or 0 if it is not
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @return the digit 1 to size if it's set or 0 if it is not
      */
     public int getDigit(final int row, final int column) {
-        return table[row * SIZE + column];
+        return table[row * size + column];
     }
 
     /**
@@ -53,48 +188,53 @@ public class SudokuState implements Cloneable {
      * The digit exclusion is independent of the digit set in the column. If a digit is
      * set in the position, it still returns false if a digit is not excluded by
      * the affected neighbouring cells.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
-     * @param digit the digit 1-9 to be tested for exclusion
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @param digit the digit 1 to size to be tested for exclusion
      * @return whether the given digit is excluded by the same row, column or block
      */
     public boolean isDigitExcluded(final int row, final int column, final int digit) {
-        short mask = (short)(1 << digit);
-        return (excluded[row * SIZE + column] & mask) != 0;
+        return (getExcludedMask(row, column) & (1L << digit)) != 0;
     }
 
     /**
      * Gives the number of excluded digits.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
      * @return number of digits excluded
      */
     public int getNumberOfExcludedDigits(final int row, final int column) {
-        int noExcluded = 0;
-        for (int digit = 1; digit <= SIZE; digit++) {
-            if (isDigitExcluded(row, column, digit)) {
-                noExcluded++;
-            }
-        }
-        return noExcluded;
+        return Long.bitCount(getExcludedMask(row, column));
+    }
+
+    /**
+     * Gives the digits that can still be set in the given cell as a bit mask:
+     * bit {@code d} is set if digit {@code d} is possible. The digits can be enumerated
+     * with {@link Long#lowestOneBit(long)} and {@link Long#numberOfTrailingZeros(long)}.
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @return mask of possible digits, or 0 if the cell is not empty
+     */
+    public long getCandidateMask(final int row, final int column) {
+        return isDigitSet(row, column) ? 0 : ~getExcludedMask(row, column) & allDigits;
     }
 
     /**
      * Gives the number of digits that can still be set in the given cell,
      * or -1 if the cell is not empty.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
      * @return number of possible digits or -1 if the cell is not empty.
      */
     public int getNumberOfPossibleDigits(final int row, final int column) {
-        return isDigitSet(row, column) ? -1 : SIZE - getNumberOfExcludedDigits(row, column);
+        return isDigitSet(row, column) ? -1 : size - getNumberOfExcludedDigits(row, column);
     }
 
     /**
      * Returns whether the given digit can be set in the given cell.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
-     * @param digit the digit 1-9 to be tested
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @param digit the digit 1 to size to be tested
      * @return true if the cell is empty and the digit is not excluded, false otherwise
      */
     public boolean canSetDigit(final int row, final int column, final int digit) {
@@ -109,79 +249,152 @@ public class SudokuState implements Cloneable {
      * If the move is valid, that is, the cell is empty and the digit is not excluded
      * by the same row, column or block, then the state will be modified and the method
      * returns true. Otherwise, the state stays intact and false is returned.
-     * @param row the number of row (0-8 from top to bottom)
-     * @param column the number of column (0-8 from left to right)
-     * @param digit the digit 1-9 to be set in the given cell
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @param digit the digit 1 to size to be set in the given cell
      * @return true if the move is valid and the state is modified, false otherwise
      */
     public boolean setDigit(final int row, final int column, final int digit) {
         boolean isValidMove = canSetDigit(row, column, digit) && isDigitValid(digit);
         if (isValidMove) {
-            table[row * SIZE + column] = (byte) digit;
-            excludeColumn(column, digit);
-            excludeRow(row, digit);
-            excludeBlock(row, column, digit);
+            table[row * size + column] = (byte) digit;
+            markPeers(row * size + column);
+            long mask = 1L << digit;
+            unitDigits[row] |= mask;
+            unitDigits[size + column] |= mask;
+            unitDigits[2 * size + block(row, column)] |= mask;
             noDigits++;
         }
         return isValidMove;
     }
 
     /**
-     * Gives whether a digit is valid (is between 1 and 9, inclusive.)
+     * Gives whether a digit is valid (is between 1 and the size of the table, inclusive.)
      * @param digit the digit to be tested
      * @return true if the digit is valid, false otherwise
      */
     public boolean isDigitValid(final int digit) {
-        return 1 <= digit && digit <= SIZE;
+        return 1 <= digit && digit <= size;
     }
 
     /**
-     * Called internally, this method accounts for exclusions by the column.
-     * @param column
-     * @param digit
+     * Clears the given cell, reverting a previous {@link #setDigit(int, int, int)}.
+     * The digit becomes possible again in the cells of the same row, column and block,
+     * unless it is excluded by another cell.
+     * @param row the number of row (0 to size-1 from top to bottom)
+     * @param column the number of column (0 to size-1 from left to right)
+     * @return the digit 1 to size that was set in the cell, or 0 if the cell was already empty
      */
-    private void excludeColumn(final int column, final int digit) {
-        short mask = (short)(1 << digit);
-        for (int row = 0; row < SIZE; row++) {
-            excluded[row * SIZE + column] |= mask;
+    public int unsetDigit(final int row, final int column) {
+        int digit = table[row * size + column];
+        if (digit != 0) {
+            table[row * size + column] = 0;
+            long mask = ~(1L << digit);
+            unitDigits[row] &= mask;
+            unitDigits[size + column] &= mask;
+            unitDigits[2 * size + block(row, column)] &= mask;
+            noDigits--;
+            markPeers(row * size + column);
         }
+        return digit;
     }
 
     /**
-     * Called internally, this method accounts for exclusions by the row.
-     * @param row
-     * @param digit
+     * Gives the empty cell with the least possible digits, the first one row by row if there are more.
+     * The index of the empty cells is updated for the digits set or cleared since the last call.
+     * @return the index of the cell ({@code row * size + column}), or -1 if the table is full
      */
-    private void excludeRow(final int row, final int digit) {
-        short mask = (short)(1 << digit);
-        for (int column = 0; column < SIZE; column++) {
-            excluded[row * SIZE + column] |= mask;
+    public int getMostConstrainedCell() {
+        updateIndex();
+        int end = (size + 1) * words;
+        for (int i = 0; i < end; i++) {
+            if (index[i] != 0) {
+                return (i % words << 6) + Long.numberOfTrailingZeros(index[i]);
+            }
         }
+        return -1;
     }
 
     /**
-     * Called internally, this method accounts for exclusions by the block.
-     * @param row
-     * @param column
-     * @param digit
+     * Called internally when a digit is set or cleared, marks the cells whose number
+     * of possible digits may have changed.
+     * @param cell the index of the cell
      */
-    private void excludeBlock(final int row, final int column, final int digit) {
-        int blockRow = row / N * N;
-        int blockColumn = column / N * N;
-        short mask = (short)(1 << digit);
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                excluded[(blockRow + i) * SIZE + (blockColumn + j)] |= mask;
+    private void markPeers(final int cell) {
+        int marked = (size + 1) * words;
+        int peers = cell * words;
+        for (int word = 0; word < words; word++) {
+            index[marked + word] |= peersOf[peers + word];
+        }
+    }
+
+    /**
+     * Called internally, moves the marked cells to their place in the index of the empty cells.
+     */
+    private void updateIndex() {
+        int marked = (size + 1) * words;
+        for (int word = 0; word < words; word++) {
+            long cells = index[marked + word];
+            if (cells != 0) {
+                index[marked + word] = 0;
+                for (int i = word; i < marked; i += words) {
+                    index[i] &= ~cells;
+                }
+                for (; cells != 0; cells &= cells - 1) {
+                    int cell = (word << 6) + Long.numberOfTrailingZeros(cells);
+                    if (table[cell] == 0) {
+                        long excluded = unitDigits[rowOf[cell]] | unitDigits[size + columnOf[cell]]
+                            | unitDigits[2 * size + blockOf[cell]];
+                        index[(size - Long.bitCount(excluded)) * words + word] |= 1L << cell;
+                    }
+                }
             }
         }
     }
 
     /**
-     * Gives the size of the table (9).
-     * @return 9
+     * Called internally, gives the digits set in the same row, column or block as a bit mask
+     * (bit {@code d} is set if digit {@code d} is excluded).
+     * @param row
+     * @param column
+     * @return the mask of excluded digits
+     */
+    private long getExcludedMask(final int row, final int column) {
+        return unitDigits[row] | unitDigits[size + column] | unitDigits[2 * size + block(row, column)];
+    }
+
+    /**
+     * Called internally, gives the number of the block (0 to size-1 row by row) containing the cell.
+     * @param row
+     * @param column
+     * @return the number of the block
+     */
+    private int block(final int row, final int column) {
+        return blockOf[row * size + column];
+    }
+
+    /**
+     * Gives the size of the table, the number of its rows, columns, blocks and digits (9 by default).
+     * @return the size, the square of the block size
      */
     public int getSize() {
-        return SIZE;
+        return size;
+    }
+
+    /**
+     * Gives the number of digits set in the table.
+     * @return number of digits set (0 to size²)
+     */
+    public int getNumberOfDigits() {
+        return noDigits;
+    }
+
+    /**
+     * Gives the size of a block of the table (3 by default).
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return n;
     }
 
     /**
@@ -189,7 +402,7 @@ public class SudokuState implements Cloneable {
      * @return true if the state is full, false otherwise.
      */
     public boolean isFull() {
-        return noDigits == SIZE * SIZE;
+        return noDigits == size * size;
     }
 
     /**
@@ -212,19 +425,19 @@ public class SudokuState implements Cloneable {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int row = 0; row < SIZE; row++) {
-            for (int column = 0; column < SIZE; column++) {
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
                 if (isDigitSet(row, column)) {
                     sb.append(getDigit(row, column));
                 }
                 else {
                     sb.append(' ');
                 }
-                if (column < SIZE - 1) {
+                if (column < size - 1) {
                     sb.append(',');
                 }
             }
-            if (row < SIZE - 1) {
+            if (row < size - 1) {
                 sb.append('\n');
             }
         }
@@ -236,11 +449,7 @@ public class SudokuState implements Cloneable {
      * @return a new instance of {@code SudokuState} that equals to this.
      */
     public SudokuState copy() {
-        SudokuState clone = new SudokuState();
-        clone.table = table.clone();
-        clone.excluded = excluded.clone();
-        clone.noDigits = noDigits;
-        return clone;
+        return new SudokuState(this);
     }
 
     @Override
@@ -248,7 +457,7 @@ public class SudokuState implements Cloneable {
         if (obj instanceof SudokuState) {
             SudokuState o = (SudokuState) obj;
             return Arrays.equals(o.table, this.table) &&
-                Arrays.equals(o.excluded, this.excluded) &&
+                Arrays.equals(o.unitDigits, this.unitDigits) &&
                 o.noDigits == this.noDigits;
         }
         return false;
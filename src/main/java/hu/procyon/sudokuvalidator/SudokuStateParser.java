@@ -12,6 +12,35 @@ import java.util.List;
  */
 public class SudokuStateParser {
 
+    /** Number of the digits that can be written with a single character: 1-9 and A-Z. */
+    static final int MAX_CHARACTER_DIGIT = 35;
+
+    private final int blockSize;
+
+    /**
+     * Creates a parser of 9×9 puzzles.
+     */
+    public SudokuStateParser() {
+        this(SudokuState.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a parser of puzzles with the given block size, e.g. 4 for 16×16 puzzles.
+     * @param blockSize the block size of the puzzles
+     * @throws IllegalArgumentException if the block size is not supported by {@link SudokuState}
+     */
+    public SudokuStateParser(final int blockSize) {
+        this.blockSize = SudokuState.checkBlockSize(blockSize);
+    }
+
+    /**
+     * Gives the block size of the puzzles parsed.
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
     /**
      * Parses a line of a Sudoku puzzle file into a list of integers (digits in the row.)
      *
@@ -53,7 +82,7 @@ public class SudokuStateParser {
      * @throws SudokuStateException when the state to be parsed is not valid
      */
     public SudokuState parseFile(final File stateFile) throws SudokuParseException, SudokuStateException {
-        SudokuState state = new SudokuState();
+        SudokuState state = new SudokuState(blockSize);
         try (LineNumberReader reader = new LineNumberReader(new FileReader(stateFile))) {
             for (int lineNo = 0; lineNo < state.getSize(); lineNo++) {
                 String line = reader.readLine();
@@ -74,7 +103,25 @@ public class SudokuStateParser {
         return state;
     }
 
-    private static void setDigit(SudokuState state, int row, int column, int digit) throws SudokuStateException {
+    /**
+     * Gives the value of a cell in the one-line format: 1-9 for the digits 1-9, and A-Z (or a-z)
+     * for the digits 10-35 of larger tables, 0 for an empty cell ({@literal '.'} or {@literal '0'}),
+     * or -1 if the character is not a cell.
+     */
+    static int characterDigit(final int c) {
+        if ('1' <= c && c <= '9') {
+            return c - '0';
+        }
+        if ('A' <= c && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if ('a' <= c && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        return c == '.' || c == '0' ? 0 : -1;
+    }
+
+    static void setDigit(SudokuState state, int row, int column, int digit) throws SudokuStateException {
         if (state.isDigitValid(digit)) {
             if (state.canSetDigit(row, column, digit)) {
                 state.setDigit(row, column, digit);
@@ -0,0 +1,188 @@
+package hu.procyon.sudokuvalidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class can be used to parse many {@code SudokuState}s from one stream, one at a time.
+ * <p>
+ * The stream consists of records in either of the following formats, which can be mixed:
+ * <ul>
+ * <li>the comma separated format of {@link SudokuStateParser}: 9 consecutive lines,
+ * of which the lines after the first one may also be empty;</li>
+ * <li>the one-line format: 81 characters on a single line, with digits 1-9 for the
+ * given cells and {@literal '.'} or {@literal '0'} for the empty ones.</li>
+ * </ul>
+ * Every record of a stream has the same size, given by the block size of the parser. For puzzles
+ * larger than 9×9 a record has as many lines or characters as the table has rows or cells, and
+ * the one-line format writes the digits from 10 with the letters A-Z (for 16×16 and 25×25 puzzles).
+ * Blank lines between records are skipped, so a comma separated record must not start with an empty line.
+ * <p>
+ * Only the current record is kept in memory, so the size of the stream is not limited.
+ * A record with an error is consumed entirely before the exception is thrown,
+ * so {@link #next()} can be called again to continue with the following record.
+ * <p>
+ * Reading and parsing can also be separated: {@link #nextLines()} reads the lines of a record,
+ * and {@link #parse(int, String[])} parses them later, possibly on another thread.
+ */
+public class SudokuStreamParser implements SudokuRecordParser {
+
+    private final int blockSize;
+    private final int size;
+    private final SudokuStateParser lineParser;
+    private final BufferedReader reader;
+    private final String[] lines;
+
+    private int lineNo = 0;
+    private int recordLineNo = -1;
+    private int noRecords = 0;
+
+    /**
+     * Creates a parser reading the given stream.
+     * @param reader the stream of Sudoku records
+     */
+    public SudokuStreamParser(final Reader reader) {
+        this(reader, SudokuState.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a parser reading puzzles with the given block size from the given stream.
+     * @param reader the stream of Sudoku records
+     * @param blockSize the block size of the puzzles, e.g. 4 for 16×16 puzzles
+     * @throws IllegalArgumentException if the block size is not supported by {@link SudokuState}
+     */
+    public SudokuStreamParser(final Reader reader, final int blockSize) {
+        this.lineParser = new SudokuStateParser(blockSize);
+        this.blockSize = blockSize;
+        this.size = blockSize * blockSize;
+        this.lines = new String[size];
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public SudokuState next() throws SudokuParseException, SudokuStateException {
+        int noLines = readRecord();
+        if (noLines == 0) {
+            return null;
+        }
+        return parse(recordLineNo, lines, noLines);
+    }
+
+    /**
+     * Reads the lines of the next record without parsing them.
+     * @return the lines of the record, or null if there are no more records
+     * @throws SudokuParseException with line -1 when there is an I/O error and no more records can be read
+     */
+    public String[] nextLines() throws SudokuParseException {
+        int noLines = readRecord();
+        return noLines == 0 ? null : Arrays.copyOf(lines, noLines);
+    }
+
+    /**
+     * Parses the lines of a record read by {@link #nextLines()}. It does not change the state of the parser,
+     * so it can be called from any thread.
+     * @param firstLineNo the number of the first line of the record (0-based), see {@link #getRecordLineNumber()}
+     * @param recordLines the lines of the record
+     * @return new {@code SudokuState} instance
+     * @throws SudokuParseException when the format of the record is not valid
+     * @throws SudokuStateException when the state in the record is not valid
+     */
+    public SudokuState parse(final int firstLineNo, final String[] recordLines) throws SudokuParseException, SudokuStateException {
+        return parse(firstLineNo, recordLines, recordLines.length);
+    }
+
+    private SudokuState parse(final int firstLineNo, final String[] recordLines, final int noLines)
+            throws SudokuParseException, SudokuStateException {
+        return noLines == 1 && isOneLineRecord(recordLines[0])
+            ? parseOneLine(firstLineNo, recordLines[0])
+            : parseCommaLines(firstLineNo, recordLines, noLines);
+    }
+
+    @Override
+    public int getRecordLineNumber() {
+        return recordLineNo;
+    }
+
+    @Override
+    public int getNumberOfRecords() {
+        return noRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads the lines of the next record into {@link #lines}.
+     * @return the number of lines read, 0 at the end of the stream
+     */
+    private int readRecord() throws SudokuParseException {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNo++;
+            } while (line != null && line.trim().isEmpty());
+            if (line == null) {
+                return 0;
+            }
+            recordLineNo = lineNo - 1;
+            noRecords++;
+            lines[0] = line;
+            if (isOneLineRecord(line)) {
+                return 1;
+            }
+            int noLines = 1;
+            while (noLines < size && (line = reader.readLine()) != null) {
+                lineNo++;
+                lines[noLines++] = line;
+            }
+            return noLines;
+        } catch (IOException e) {
+            throw new SudokuParseException("Error while reading Sudoku stream", e);
+        }
+    }
+
+    private SudokuState parseCommaLines(final int firstLineNo, final String[] recordLines, final int noLines)
+            throws SudokuParseException, SudokuStateException {
+        SudokuState state = new SudokuState(blockSize);
+        for (int row = 0; row < noLines; row++) {
+            List<Integer> digits = lineParser.parseLine(firstLineNo + row, recordLines[row]);
+            for (int column = 0; column < digits.size(); column++) {
+                Integer digit = digits.get(column);
+                if (digit != null) {
+                    SudokuStateParser.setDigit(state, row, column, digit);
+                }
+            }
+        }
+        return state;
+    }
+
+    private SudokuState parseOneLine(final int lineNo, final String line) throws SudokuParseException, SudokuStateException {
+        SudokuState state = new SudokuState(blockSize);
+        String record = line.trim();
+        for (int i = 0; i < size * size; i++) {
+            char c = record.charAt(i);
+            int digit = SudokuStateParser.characterDigit(c);
+            if (digit < 0 || digit > size) {
+                throw new SudokuParseException("Invalid Sudoku digit: " + c, lineNo, i);
+            }
+            if (digit > 0) {
+                SudokuStateParser.setDigit(state, i / size, i % size, digit);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Tells whether the line is a record in the one-line format (as many characters as cells, without commas).
+     * Tables larger than 35×35 have no one-line format.
+     */
+    private boolean isOneLineRecord(final String line) {
+        return size <= SudokuStateParser.MAX_CHARACTER_DIGIT && line.indexOf(',') < 0 && line.trim().length() == size * size;
+    }
+}
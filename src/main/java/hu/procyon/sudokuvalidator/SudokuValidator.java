@@ -1,46 +1,489 @@
 package hu.procyon.sudokuvalidator;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Main class for the sudokuvalidator application.
  */
 public class SudokuValidator {
+    private static final String BATCH_OPTION = "--batch";
+    private static final String STREAM_OPTION = "--stream";
+    private static final String PIPELINE_OPTION = "--pipeline";
+    private static final String UNIQUE_OPTION = "--unique";
+    private static final String ENGINE_OPTION = "--engine";
+    private static final String HEURISTIC_OPTION = "--heuristic";
+    private static final String BLOCK_SIZE_OPTION = "--block-size";
+    private static final String THREADS_OPTION = "--threads";
+    private static final String UNORDERED_OPTION = "--unordered";
+    private static final String METRICS_OPTION = "--metrics";
+    private static final String SERVER_OPTION = "--server";
+    private static final String CONVERT_OPTION = "--convert";
+    private static final String WITH_RESULTS_OPTION = "--with-results";
+    private static final String CACHE_OPTION = "--cache";
+    private static final String CACHE_FILE_OPTION = "--cache-file";
+    private static final String MAX_NODES_OPTION = "--max-nodes";
+    private static final String TIMEOUT_OPTION = "--timeout";
+    private static final int DEFAULT_CACHE_SIZE = 100000;
+    private static final String STDIN = "-";
+    private static final int SERVER_QUEUE_SIZE_PER_THREAD = 16;
+    private static final int SERVER_STOP_SECONDS = 10;
+
+    /** The sink writing the search metrics, or null if they are not collected. */
+    private final SudokuMetricsSink metricsSink;
+    /** The file the result cache is loaded from and saved to, or null. */
+    private final File cacheFile;
+
+    private SudokuValidator(final SudokuMetricsSink metricsSink, final File cacheFile) {
+        this.metricsSink = metricsSink;
+        this.cacheFile = cacheFile;
+    }
+
     public static void main(String[] args) {
-        if (args.length == 1) {
-            File stateFile = new File(args[0]);
+        String mode = null;
+        boolean uniquenessChecked = false;
+        String metrics = null;
+        String engine = SudokuSolvers.DEFAULT;
+        SudokuHeuristic heuristic = SudokuHeuristic.MRV;
+        int threads = 1;
+        int port = -1;
+        int cacheSize = 0;
+        long maxNodes = 0;
+        long timeoutMillis = 0;
+        int blockSize = SudokuState.DEFAULT_BLOCK_SIZE;
+        boolean ordered = true;
+        File convertFile = null;
+        boolean withResults = false;
+        File cacheFile = null;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            switch (args[first]) {
+                case BATCH_OPTION:
+                case STREAM_OPTION:
+                case PIPELINE_OPTION:
+                    if (mode != null) {
+                        usageError();
+                    }
+                    mode = args[first];
+                    break;
+                case SERVER_OPTION:
+                    if (mode != null) {
+                        usageError();
+                    }
+                    mode = args[first];
+                    try {
+                        port = Integer.parseInt(optionValue(args, ++first));
+                    } catch (NumberFormatException e) {
+                        usageError();
+                    }
+                    if (port < 0 || port > 0xFFFF) {
+                        usageError();
+                    }
+                    break;
+                case CONVERT_OPTION:
+                    if (mode != null) {
+                        usageError();
+                    }
+                    mode = args[first];
+                    convertFile = new File(optionValue(args, ++first));
+                    break;
+                case WITH_RESULTS_OPTION:
+                    withResults = true;
+                    break;
+                case UNIQUE_OPTION:
+                    uniquenessChecked = true;
+                    break;
+                case METRICS_OPTION:
+                    metrics = optionValue(args, ++first);
+                    break;
+                case CACHE_OPTION:
+                    try {
+                        cacheSize = Integer.parseInt(optionValue(args, ++first));
+                    } catch (NumberFormatException e) {
+                        usageError();
+                    }
+                    if (cacheSize < 1) {
+                        usageError();
+                    }
+                    break;
+                case MAX_NODES_OPTION:
+                    maxNodes = positiveLong(optionValue(args, ++first));
+                    break;
+                case TIMEOUT_OPTION:
+                    timeoutMillis = positiveLong(optionValue(args, ++first));
+                    break;
+                case CACHE_FILE_OPTION:
+                    cacheFile = new File(optionValue(args, ++first));
+                    break;
+                case ENGINE_OPTION:
+                    engine = optionValue(args, ++first);
+                    break;
+                case THREADS_OPTION:
+                    try {
+                        threads = Integer.parseInt(optionValue(args, ++first));
+                    } catch (NumberFormatException e) {
+                        usageError();
+                    }
+                    if (threads == 0) {
+                        threads = Runtime.getRuntime().availableProcessors();
+                    }
+                    else if (threads < 0) {
+                        usageError();
+                    }
+                    break;
+                case UNORDERED_OPTION:
+                    ordered = false;
+                    break;
+                case BLOCK_SIZE_OPTION:
+                    try {
+                        blockSize = Integer.parseInt(optionValue(args, ++first));
+                    } catch (NumberFormatException e) {
+                        usageError();
+                    }
+                    if (blockSize < SudokuState.MIN_BLOCK_SIZE || blockSize > SudokuState.MAX_BLOCK_SIZE) {
+                        usageError();
+                    }
+                    break;
+                case HEURISTIC_OPTION:
+                    try {
+                        heuristic = SudokuHeuristic.forName(optionValue(args, ++first));
+                    } catch (IllegalArgumentException e) {
+                        usageError();
+                    }
+                    break;
+                default:
+                    usageError();
+            }
+        }
+        SudokuResultSink sink = new SudokuLineSink(System.out);
+        SudokuMetricsSink metricsSink = null;
+        if (withResults && !CONVERT_OPTION.equals(mode)) {
+            usageError();
+        }
+        if (metrics != null) {
+            if (mode == null || SERVER_OPTION.equals(mode) || CONVERT_OPTION.equals(mode)) {
+                usageError();
+            }
+            metricsSink = new SudokuMetricsSink(sink, openMetrics(metrics));
+            sink = metricsSink;
+        }
+        SudokuValidator tool = new SudokuValidator(metricsSink, cacheFile);
+        SudokuBatchValidator validator = new SudokuBatchValidator(sink);
+        validator.setUniquenessChecked(uniquenessChecked);
+        validator.setBlockSize(blockSize);
+        validator.setMetricsCollected(metrics != null);
+        validator.setBudget(maxNodes, timeoutMillis);
+        if (cacheSize > 0 || cacheFile != null) {
+            validator.setCache(tool.openCache(cacheSize > 0 ? cacheSize : DEFAULT_CACHE_SIZE));
+        }
+        try {
+            validator.setEngine(engine, heuristic);
+        } catch (IllegalArgumentException e) {
+            usageError();
+        }
+        if (SERVER_OPTION.equals(mode)) {
+            if (args.length != first) {
+                usageError();
+            }
+            tool.processServer(validator, threads, port);
+        }
+        else if (CONVERT_OPTION.equals(mode)) {
+            tool.processConvert(validator, args, first, convertFile, withResults);
+        }
+        else if (PIPELINE_OPTION.equals(mode)) {
+            tool.processPipeline(validator, args, first, threads, ordered);
+        }
+        else if (mode != null) {
+            validator.setThreads(threads, ordered);
+        }
+        if (BATCH_OPTION.equals(mode)) {
+            tool.processBatch(validator, args, first);
+        }
+        else if (STREAM_OPTION.equals(mode)) {
+            tool.processStreams(validator, args, first);
+        }
+        else if (SERVER_OPTION.equals(mode)) {
+            // the server runs until the JVM is stopped
+        }
+        else if (args.length - first == 1) {
+            File stateFile = new File(args[first]);
             if (stateFile.exists()) {
-                processStateFile(stateFile);
+                tool.processStateFile(validator, stateFile);
             }
             else {
-                error("Sudoku puzzle file " + stateFile.getPath() + " does NOT exist.", 2);
+                error("Sudoku puzzle file " + stateFile.getPath() + " does NOT exist.", SudokuVerdict.NOT_FOUND.getCode());
             }
         }
         else {
-            error("SudokuValidator requires exactly 1 argument: puzzle file path", 3);
+            usageError();
+        }
+    }
+
+    private void processStateFile(SudokuBatchValidator validator, File stateFile) {
+        SudokuResult result = validator.validateFile(stateFile);
+        SudokuVerdict verdict = result.verdict;
+        saveCache(validator);
+        if (result.finding != null) {
+            System.err.println(result.finding.message + ".");
+        }
+        if (validator.isUniquenessChecked() && verdict != SudokuVerdict.PARSE_ERROR
+                && verdict != SudokuVerdict.UNDETERMINED) {
+            System.out.println("Solutions: " + (verdict == SudokuVerdict.VALID ? "1"
+                : verdict == SudokuVerdict.INVALID ? "0" : ">=2"));
+        }
+        if (verdict == SudokuVerdict.VALID) {
+            System.out.println(verdict.getMessage());
+        }
+        else {
+            error(verdict.getMessage(), verdict.getCode());
+        }
+    }
+
+    private void processBatch(SudokuBatchValidator validator, String[] args, int first) {
+        if (args.length == first) {
+            usageError();
+        }
+        for (int i = first; i < args.length; i++) {
+            validator.validateInput(args[i]);
+        }
+        finish(validator);
+    }
+
+    private void processStreams(SudokuBatchValidator validator, String[] args, int first) {
+        if (args.length == first) {
+            usageError();
+        }
+        for (int i = first; i < args.length; i++) {
+            SudokuRecordParser parser;
+            try {
+                parser = openStream(args[i], validator.getBlockSize());
+            } catch (IOException e) {
+                // missing or cannot be opened
+                validator.reportNotFound(args[i]);
+                continue;
+            }
+            try (SudokuRecordParser opened = parser) {
+                validator.validateStream(args[i], opened);
+            } catch (IOException e) {
+                // closing failed, every puzzle has already been read
+            }
         }
+        finish(validator);
     }
 
-    private static void processStateFile(File stateFile) {
-        SudokuStateParser parser = new SudokuStateParser();
+    /**
+     * Validates the multi-puzzle files, or the standard input if none is given, in a staged pipeline,
+     * then writes the statistics of the stages on the standard error.
+     */
+    private void processPipeline(SudokuBatchValidator validator, String[] args, int first, int threads,
+                                        boolean ordered) {
+        List<String> inputs = args.length == first
+            ? Collections.singletonList(STDIN) : Arrays.asList(args).subList(first, args.length);
+        SudokuPipeline pipeline = new SudokuPipeline(validator, threads, ordered);
+        pipeline.run(inputs);
+        for (SudokuStageStats stats : pipeline.getStageStats()) {
+            System.err.println(stats);
+        }
+        finish(validator);
+    }
+
+    /**
+     * Writes the puzzles of the multi-puzzle files to a binary file, with their verdicts
+     * and solutions if they are asked for. Records that cannot be parsed are skipped, and so are the inputs
+     * that cannot be read from where the reading failed. If the output cannot be written, it is deleted.
+     */
+    private void processConvert(SudokuBatchValidator validator, String[] args, int first, File output,
+                                boolean withResults) {
+        if (args.length == first) {
+            usageError();
+        }
+        int noSkipped = 0;
+        int noSkippedInputs = 0;
+        try (SudokuBinaryWriter writer = new SudokuBinaryWriter(output, validator.getBlockSize(), withResults)) {
+            for (int i = first; i < args.length; i++) {
+                SudokuRecordParser parser;
+                try {
+                    parser = openStream(args[i], validator.getBlockSize());
+                } catch (IOException e) {
+                    // missing or cannot be opened
+                    System.err.println("Cannot read " + args[i] + ": " + e.getMessage());
+                    noSkippedInputs++;
+                    continue;
+                }
+                try {
+                    while (true) {
+                        SudokuState state;
+                        try {
+                            state = parser.next();
+                        } catch (SudokuParseException e) {
+                            if (e.getLine() < 0) {
+                                // I/O error, the rest of the input cannot be read
+                                System.err.println("Cannot read " + args[i] + ": " + e.getMessage());
+                                noSkippedInputs++;
+                                break;
+                            }
+                            noSkipped++;
+                            continue;
+                        } catch (SudokuStateException e) {
+                            noSkipped++;
+                            continue;
+                        }
+                        if (state == null) {
+                            break;
+                        }
+                        if (!withResults) {
+                            writer.write(state);
+                        }
+                        else {
+                            SudokuResult result = validator.solve(state);
+                            writer.write(state, result.verdict, result.solution);
+                        }
+                    }
+                } finally {
+                    try {
+                        parser.close();
+                    } catch (IOException e) {
+                        // closing failed, every puzzle has already been read
+                    }
+                }
+            }
+            System.err.println("Converted " + writer.getCount() + " puzzles, skipped " + noSkipped + " records and "
+                + noSkippedInputs + " inputs.");
+        } catch (IllegalArgumentException e) {
+            error(e.getMessage(), 3);
+        } catch (IOException e) {
+            // an unfinished corpus must not be taken for a complete one
+            output.delete();
+            error("Cannot convert to " + output.getPath() + ": " + e.getMessage(), 3);
+        }
+        saveCache(validator);
+        System.exit(0);
+    }
+
+    private void processServer(SudokuBatchValidator validator, int threads, int port) {
+        SudokuServer server = new SudokuServer(validator, threads, threads * SERVER_QUEUE_SIZE_PER_THREAD);
+        try {
+            server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            error("Cannot start the server on port " + port + ": " + e.getMessage(), 3);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(SERVER_STOP_SECONDS);
+            saveCache(validator);
+        }));
+        System.err.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort());
+    }
+
+    private void finish(SudokuBatchValidator validator) {
+        validator.finish();
+        if (metricsSink != null) {
+            metricsSink.writeTotal();
+        }
+        if (validator.getCache() != null) {
+            System.err.println("Cache: " + validator.getCache());
+        }
+        saveCache(validator);
+        System.out.flush();
+        System.exit(validator.isAllValid() ? 0 : SudokuVerdict.INVALID.getCode());
+    }
+
+    private static String optionValue(String[] args, int index) {
+        if (index >= args.length) {
+            usageError();
+        }
+        return args[index];
+    }
+
+    private static long positiveLong(String value) {
+        long result = 0;
         try {
-            SudokuState state = parser.parseFile(stateFile);
-            SudokuState solved = new SudokuBacktracker().findSolution(state);
-            if (solved != null) {
-                System.out.println("Valid Sudoku puzzle.");
-                //System.out.println("Solution:");
-                //System.out.println(solved);
+            result = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            usageError();
+        }
+        if (result < 1) {
+            usageError();
+        }
+        return result;
+    }
+
+    private static SudokuRecordParser openStream(String path, int blockSize) throws IOException {
+        if (STDIN.equals(path)) {
+            return new SudokuStreamParser(new InputStreamReader(System.in), blockSize);
+        }
+        return SudokuRecordParser.open(new File(path), blockSize);
+    }
+
+    private SudokuSolutionCache openCache(int size) {
+        SudokuSolutionCache cache = new SudokuSolutionCache(size);
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                cache.load(cacheFile);
+            } catch (IOException e) {
+                System.err.println("Cache file " + cacheFile.getPath() + " cannot be read: " + e.getMessage());
             }
-            else {
-                error("Invalid puzzle.", 1);
+        }
+        return cache;
+    }
+
+    private void saveCache(SudokuBatchValidator validator) {
+        if (cacheFile != null) {
+            try {
+                validator.getCache().save(cacheFile);
+            } catch (IOException e) {
+                System.err.println("Cache file " + cacheFile.getPath() + " cannot be written: " + e.getMessage());
             }
-        } catch (SudokuParseException e) {
-            error("Sudoku puzzle file is invalid.", 4);
-        } catch (SudokuStateException e) {
-            error("Invalid puzzle.", 1);
         }
     }
 
+    private static PrintStream openMetrics(String path) {
+        if (STDIN.equals(path)) {
+            return System.err;
+        }
+        try {
+            return new PrintStream(path);
+        } catch (FileNotFoundException e) {
+            error("Metrics file " + path + " cannot be created.", 3);
+            return null;
+        }
+    }
+
+    private static void usageError() {
+        error("Usage: SudokuValidator [OPTIONS] PUZZLEFILE\n"
+            + "   or: SudokuValidator [OPTIONS] " + BATCH_OPTION + " PUZZLEFILE|DIRECTORY|GLOB...\n"
+            + "   or: SudokuValidator [OPTIONS] " + STREAM_OPTION + " PUZZLESFILE... (" + STDIN + " for the standard input)\n"
+            + "   or: SudokuValidator [OPTIONS] " + PIPELINE_OPTION + " [PUZZLESFILE...] (staged, default: the standard input)\n"
+            + "   or: SudokuValidator [OPTIONS] " + CONVERT_OPTION + " BINARYFILE PUZZLESFILE... (write a binary corpus)\n"
+            + "   or: SudokuValidator [OPTIONS] " + SERVER_OPTION + " PORT (POST puzzles to http://localhost:PORT/validate)\n"
+            + "Options:\n"
+            + "  " + UNIQUE_OPTION + "            a puzzle is valid only if it has exactly one solution\n"
+            + "  " + ENGINE_OPTION + " NAME       solver engine, one of " + SudokuSolvers.getNames()
+            + " (default: " + SudokuSolvers.DEFAULT + ")\n"
+            + "  " + HEURISTIC_OPTION + " NAME    cell selection heuristic, " + SudokuHeuristic.MRV.getName()
+            + " (default) or " + SudokuHeuristic.FIRST.getName() + "\n"
+            + "  " + BLOCK_SIZE_OPTION + " N     block size of the puzzles, " + SudokuState.MIN_BLOCK_SIZE + "-"
+            + SudokuState.MAX_BLOCK_SIZE + " (default: " + SudokuState.DEFAULT_BLOCK_SIZE + " for 9x9, 4 for 16x16)\n"
+            + "  " + THREADS_OPTION + " N        number of worker threads in batch, multi-puzzle, pipeline and server mode\n"
+            + "                     (default: 1, 0 for the number of processors)\n"
+            + "  " + UNORDERED_OPTION + "         write the results as they are ready, not in the order of the input\n"
+            + "  " + WITH_RESULTS_OPTION + "      store the verdict and a solution of every puzzle in the binary corpus\n"
+            + "  " + MAX_NODES_OPTION + " N      give up a puzzle after N search nodes (verdict UNDETERMINED, code "
+            + SudokuVerdict.UNDETERMINED.getCode() + ")\n"
+            + "  " + TIMEOUT_OPTION + " MS       give up a puzzle after searching for MS milliseconds\n"
+            + "  " + CACHE_OPTION + " N          cache the results of N puzzles, also of those equal up to symmetry\n"
+            + "  " + CACHE_FILE_OPTION + " FILE   load the cache from FILE and save it at the end\n"
+            + "  " + METRICS_OPTION + " FILE      write the search metrics of every puzzle and their totals as JSON lines\n"
+            + "                     in batch, multi-puzzle and pipeline mode (" + STDIN + " for the standard error)", 3);
+    }
+
     private static void error(final String message, final int errorCode) {
         System.err.println(message);
         System.exit(errorCode);
@@ -0,0 +1,53 @@
+package hu.procyon.sudokuvalidator;
+
+/**
+ * Possible outcomes of validating a Sudoku puzzle, together with the exit code
+ * and message the command line tool uses for them.
+ */
+public enum SudokuVerdict {
+    VALID(0, "Valid Sudoku puzzle."),
+    INVALID(1, "Invalid puzzle."),
+    NOT_FOUND(2, "Sudoku puzzle file does NOT exist."),
+    PARSE_ERROR(4, "Sudoku puzzle file is invalid."),
+    NOT_UNIQUE(5, "Sudoku puzzle has more than one solution."),
+    UNDETERMINED(6, "Sudoku puzzle could not be decided within the search budget."),
+    ERROR(7, "Sudoku puzzle could not be validated because of an internal error.");
+
+    private final int code;
+    private final String message;
+
+    SudokuVerdict(final int code, final String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    /**
+     * Gives the exit code of the command line tool belonging to this verdict.
+     * @return 0 for a valid puzzle, a positive number otherwise
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Gives the verdict belonging to an exit code.
+     * @param code the exit code
+     * @return the verdict, or null if no verdict has the code
+     */
+    public static SudokuVerdict forCode(final int code) {
+        for (SudokuVerdict verdict : values()) {
+            if (verdict.code == code) {
+                return verdict;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives the human readable message belonging to this verdict.
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,87 @@
+package hu.procyon.sudokuvalidator;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SudokuLanes} propagated with the Java Vector API: the masks of a cell in every lane are a single
+ * vector of {@value SudokuLanes#LANES} {@code short}s, so a step of the propagation is a few SIMD
+ * instructions for every puzzle at once.
+ * <p>
+ * The class is in the Java 17 part of the multi-release jar, and it can be loaded only if the
+ * {@code jdk.incubator.vector} module is added to the JVM ({@code --add-modules jdk.incubator.vector}).
+ */
+final class SudokuVectorLanes extends SudokuLanes {
+
+    /** 256 bits, {@value SudokuLanes#LANES} lanes of {@code short}. */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_256;
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    boolean round() {
+        countSingles();
+        ShortVector changed = ShortVector.zero(SPECIES);
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = CELL_UNITS[cell][0] * LANES;
+            int column = CELL_UNITS[cell][1] * LANES;
+            int block = CELL_UNITS[cell][2] * LANES;
+            ShortVector mask = ShortVector.fromArray(SPECIES, masks, cell * LANES);
+            ShortVector own = single(mask);
+            ShortVector peers = load(singlesOnce, row).or(load(singlesOnce, column)).or(load(singlesOnce, block));
+            ShortVector twice = load(singlesTwice, row).or(load(singlesTwice, column)).or(load(singlesTwice, block));
+            ShortVector reduced = mask.and(peers.and(own.not()).or(twice).not());
+            changed = changed.or(mask.lanewise(VectorOperators.XOR, reduced));
+            reduced.intoArray(masks, cell * LANES);
+        }
+        for (int[] cells : UNIT_CELLS) {
+            ShortVector once = ShortVector.zero(SPECIES);
+            ShortVector twice = ShortVector.zero(SPECIES);
+            for (int cell : cells) {
+                ShortVector mask = load(masks, cell * LANES);
+                twice = twice.or(once.and(mask));
+                once = once.or(mask);
+            }
+            ShortVector hidden = once.and(twice.not());
+            for (int cell : cells) {
+                ShortVector mask = load(masks, cell * LANES);
+                ShortVector single = mask.and(hidden);
+                ShortVector result = mask.blend(single, single.compare(VectorOperators.NE, 0));
+                changed = changed.or(mask.lanewise(VectorOperators.XOR, result));
+                result.intoArray(masks, cell * LANES);
+            }
+        }
+        return changed.reduceLanes(VectorOperators.OR) != 0;
+    }
+
+    private void countSingles() {
+        for (int unit = 0; unit < UNITS; unit++) {
+            ShortVector once = ShortVector.zero(SPECIES);
+            ShortVector twice = ShortVector.zero(SPECIES);
+            for (int cell : UNIT_CELLS[unit]) {
+                ShortVector single = single(load(masks, cell * LANES));
+                twice = twice.or(once.and(single));
+                once = once.or(single);
+            }
+            once.intoArray(singlesOnce, unit * LANES);
+            twice.intoArray(singlesTwice, unit * LANES);
+        }
+    }
+
+    /**
+     * Gives the masks with a single candidate, and 0 in the lanes with more than one.
+     */
+    private static ShortVector single(final ShortVector mask) {
+        VectorMask<Short> isSingle = mask.and(mask.sub((short) 1)).compare(VectorOperators.EQ, 0);
+        return ShortVector.zero(SPECIES).blend(mask, isSingle);
+    }
+
+    private static ShortVector load(final short[] array, final int offset) {
+        return ShortVector.fromArray(SPECIES, array, offset);
+    }
+}
@@ -0,0 +1,66 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * SudokuAnalyzerTest
+ */
+public class SudokuAnalyzerTest {
+
+    private final SudokuAnalyzer analyzer = new SudokuAnalyzer();
+
+    private static SudokuState parse(String name) throws Exception {
+        return new SudokuStateParser().parseFile(new File("example_puzzles", name));
+    }
+
+    @Test
+    public void testConsistentPuzzles() throws Exception {
+        for (String name : new String[] { "wikipedia", "wikipedia-17", "magazine", "basic" }) {
+            assertNull(name, analyzer.analyze(parse(name), true));
+        }
+    }
+
+    @Test
+    public void testCellWithoutCandidate() {
+        SudokuState state = new SudokuState();
+        for (int column = 1; column < 9; column++) {
+            state.setDigit(0, column, column);
+        }
+        state.setDigit(1, 0, 9);
+        SudokuFinding finding = analyzer.analyze(state, false);
+        assertEquals(SudokuCheck.NO_CANDIDATE_CELL, finding.check);
+        assertEquals("Cell (0,0) has no possible digit", finding.message);
+    }
+
+    @Test
+    public void testDigitWithoutPlace() throws Exception {
+        SudokuFinding finding = analyzer.analyze(parse("random-medium1-incorrect"), false);
+        assertEquals(SudokuCheck.NO_PLACE_FOR_DIGIT, finding.check);
+
+        SudokuState state = new SudokuState();
+        state.setDigit(1, 0, 1);
+        state.setDigit(2, 4, 1);
+        state.setDigit(3, 7, 1);
+        state.setDigit(0, 1, 2);
+        state.setDigit(0, 2, 3);
+        state.setDigit(0, 3, 4);
+        state.setDigit(0, 5, 5);
+        state.setDigit(0, 6, 6);
+        state.setDigit(0, 8, 7);
+        finding = analyzer.analyze(state, false);
+        assertEquals(SudokuCheck.NO_PLACE_FOR_DIGIT, finding.check);
+        assertEquals("Digit 1 has no place in row 0", finding.message);
+    }
+
+    @Test
+    public void testTooFewGivens() throws Exception {
+        assertEquals(SudokuCheck.TOO_FEW_GIVENS, analyzer.analyze(parse("null"), true).check);
+        assertNull(analyzer.analyze(parse("null"), false));
+        assertNull(analyzer.analyze(new SudokuState(4), true));
+    }
+}
@@ -0,0 +1,260 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SudokuBacktrackerTest
+ */
+public class SudokuBacktrackerTest {
+
+    private static final String[] SOLVABLE_PUZZLES = {
+        "basic", "basic-minimal", "magazine", "magazine-part-solved", "null", "random-easy1",
+        "random-medium1", "three", "wikipedia", "wikipedia-17", "wikipedia-17diag", "wikipedia-18"
+    };
+
+    private static final String[] UNSOLVABLE_PUZZLES = {
+        "random-medium1-incorrect"
+    };
+
+    private SudokuStateParser parser;
+
+    @Before
+    public void setup() {
+        parser = new SudokuStateParser();
+    }
+
+    private SudokuState parse(String name) throws Exception {
+        return parser.parseFile(new File("example_puzzles", name));
+    }
+
+    /**
+     * Asserts that the solution is full and keeps the digits of the puzzle.
+     */
+    static void assertSolves(SudokuState puzzle, SudokuState solution) {
+        assertNotNull(solution);
+        assertTrue(solution.isFull());
+        for (int row = 0; row < puzzle.getSize(); row++) {
+            for (int column = 0; column < puzzle.getSize(); column++) {
+                if (puzzle.isDigitSet(row, column)) {
+                    assertEquals(puzzle.getDigit(row, column), solution.getDigit(row, column));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSolvablePuzzles() throws Exception {
+        SudokuBacktracker backtracker = new SudokuBacktracker();
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parse(name);
+            assertSolves(puzzle, backtracker.findSolution(puzzle));
+        }
+    }
+
+    @Test
+    public void testUnsolvablePuzzles() throws Exception {
+        SudokuBacktracker backtracker = new SudokuBacktracker();
+        for (String name : UNSOLVABLE_PUZZLES) {
+            assertNull(backtracker.findSolution(parse(name)));
+        }
+    }
+
+    @Test
+    public void testInPlaceSolvablePuzzles() throws Exception {
+        SudokuInPlaceBacktracker backtracker = new SudokuInPlaceBacktracker();
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parse(name);
+            SudokuState copy = puzzle.copy();
+            assertSolves(puzzle, backtracker.findSolution(puzzle));
+            assertEquals(copy, puzzle);
+        }
+    }
+
+    @Test
+    public void testInPlaceUnsolvablePuzzles() throws Exception {
+        SudokuInPlaceBacktracker backtracker = new SudokuInPlaceBacktracker();
+        for (String name : UNSOLVABLE_PUZZLES) {
+            assertNull(backtracker.findSolution(parse(name)));
+        }
+    }
+
+    @Test
+    public void testPropagationSolvablePuzzles() throws Exception {
+        SudokuBacktracker backtracker = new SudokuBacktracker(new SudokuSinglesPropagator());
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parse(name);
+            assertSolves(puzzle, backtracker.findSolution(puzzle));
+        }
+    }
+
+    @Test
+    public void testPropagationUnsolvablePuzzles() throws Exception {
+        SudokuBacktracker backtracker = new SudokuBacktracker(new SudokuSinglesPropagator());
+        for (String name : UNSOLVABLE_PUZZLES) {
+            assertNull(backtracker.findSolution(parse(name)));
+        }
+    }
+
+    @Test
+    public void testPropagationSavesNodes() throws Exception {
+        SudokuBacktracker plain = new SudokuBacktracker();
+        SudokuSinglesPropagator propagator = new SudokuSinglesPropagator();
+        SudokuBacktracker propagating = new SudokuBacktracker(propagator);
+        long plainNodes = 0;
+        long propagatingNodes = 0;
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parse(name);
+            plain.findSolution(puzzle);
+            propagating.findSolution(puzzle);
+            plainNodes += plain.getStats().getNodes();
+            propagatingNodes += propagating.getStats().getNodes();
+        }
+        assertTrue(propagatingNodes < plainNodes);
+        assertTrue(propagator.getNumberOfNakedSingles() + propagator.getNumberOfHiddenSingles() > 0);
+    }
+
+    @Test
+    public void testCountSolutions() throws Exception {
+        SudokuBacktracker backtracker = new SudokuBacktracker();
+        SudokuBacktracker propagating = new SudokuBacktracker(new SudokuSinglesPropagator());
+        SudokuInPlaceBacktracker inPlace = new SudokuInPlaceBacktracker();
+        String[] names = { "wikipedia", "wikipedia-17", "null", "three", "random-medium1-incorrect" };
+        int[] expected = { 1, 1, 2, 2, 0 };
+        for (int i = 0; i < names.length; i++) {
+            SudokuState puzzle = parse(names[i]);
+            assertEquals(names[i], expected[i], backtracker.countSolutions(puzzle, 2));
+            assertEquals(names[i], expected[i], propagating.countSolutions(puzzle, 2));
+            assertEquals(names[i], expected[i], inPlace.countSolutions(puzzle, 2));
+        }
+        assertEquals(5, inPlace.countSolutions(parse("null"), 5));
+        assertEquals(5, backtracker.countSolutions(parse("null"), 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountSolutionsInvalidLimit() throws Exception {
+        new SudokuBacktracker().countSolutions(parse("wikipedia"), 0);
+    }
+
+    @Test
+    public void testDancingLinks() throws Exception {
+        SudokuDancingLinks dancingLinks = new SudokuDancingLinks();
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parse(name);
+            SudokuState copy = puzzle.copy();
+            assertSolves(puzzle, dancingLinks.findSolution(puzzle));
+            assertEquals(copy, puzzle);
+        }
+        for (String name : UNSOLVABLE_PUZZLES) {
+            assertNull(dancingLinks.findSolution(parse(name)));
+        }
+        String[] names = { "wikipedia", "wikipedia-17", "null", "three", "random-medium1-incorrect" };
+        int[] expected = { 1, 1, 2, 2, 0 };
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], expected[i], dancingLinks.countSolutions(parse(names[i]), 2));
+        }
+        assertEquals(5, dancingLinks.countSolutions(parse("null"), 5));
+        // the matrix is restored after an interrupted search
+        assertSolves(parse("wikipedia-17"), dancingLinks.findSolution(parse("wikipedia-17")));
+    }
+
+    @Test
+    public void testRegisteredSolvers() throws Exception {
+        for (String engine : SudokuSolvers.getNames()) {
+            for (SudokuHeuristic heuristic : SudokuHeuristic.values()) {
+                SudokuSolver solver = SudokuSolvers.create(engine, heuristic);
+                for (String name : SOLVABLE_PUZZLES) {
+                    SudokuState puzzle = parse(name);
+                    assertSolves(puzzle, solver.findSolution(puzzle));
+                }
+                assertNull(solver.findSolution(parse("random-medium1-incorrect")));
+                assertEquals(2, solver.countSolutions(parse("null"), 2));
+                assertTrue(solver.getStats().getNodes() > 0);
+                // engines keeping the solutions they count give the first one
+                SudokuState first = solver.getFirstSolution();
+                if (first != null) {
+                    assertSolves(parse("null"), first);
+                }
+                assertEquals(0, solver.countSolutions(parse("random-medium1-incorrect"), 2));
+                assertNull(solver.getFirstSolution());
+            }
+        }
+    }
+
+    @Test
+    public void testLargerPuzzles() throws Exception {
+        SudokuState puzzle = new SudokuStateParser(4).parseFile(new File("example_puzzles", "16x16"));
+        for (String engine : SudokuSolvers.getNames()) {
+            SudokuSolver solver = SudokuSolvers.create(engine, SudokuHeuristic.MRV);
+            assertSolves(puzzle, solver.findSolution(puzzle));
+            assertEquals(engine, 1, solver.countSolutions(puzzle, 2));
+            if (solver.getFirstSolution() != null) {
+                assertSolves(puzzle, solver.getFirstSolution());
+            }
+            // every 4×4 table, then a 9×9 puzzle again with the same instance
+            assertEquals(engine, 288, solver.countSolutions(new SudokuState(2), 1000));
+            assertEquals(engine, 1, solver.countSolutions(parse("wikipedia-17"), 2));
+        }
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        for (String engine : SudokuSolvers.getNames()) {
+            SudokuSolver solver = SudokuSolvers.create(engine, SudokuHeuristic.MRV);
+            solver.getStats().setBudget(10, 0);
+            assertTrue(engine, solver.countSolutions(parse("null"), 1000) < 1000);
+            assertTrue(engine, solver.getStats().isAborted());
+            if (!SudokuSolvers.PARALLEL.equals(engine)) {
+                assertEquals(engine, 11, solver.getStats().getNodes());
+            }
+            // an easy puzzle is decided within a small budget
+            solver.getStats().setBudget(1000, 0);
+            assertEquals(engine, 1, solver.countSolutions(parse("basic"), 2));
+            assertFalse(engine, solver.getStats().isAborted());
+
+            solver.getStats().setBudget(0, 20);
+            long start = System.nanoTime();
+            assertTrue(engine, solver.countSolutions(new SudokuState(), Integer.MAX_VALUE) < Integer.MAX_VALUE);
+            assertTrue(engine, solver.getStats().isAborted());
+            assertTrue(engine, System.nanoTime() - start < 5_000_000_000L);
+
+            solver.getStats().setBudget(0, 0);
+            assertEquals(engine, 1000, solver.countSolutions(parse("null"), 1000));
+            assertFalse(engine, solver.getStats().isAborted());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSolver() {
+        SudokuSolvers.create("unknown", SudokuHeuristic.MRV);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SudokuBacktracker backtracker = new SudokuBacktracker(new SudokuSinglesPropagator());
+            backtracker.setParallel(pool, 3);
+            for (String name : SOLVABLE_PUZZLES) {
+                SudokuState puzzle = parse(name);
+                assertSolves(puzzle, backtracker.findSolution(puzzle));
+            }
+            assertNull(backtracker.findSolution(parse("random-medium1-incorrect")));
+            assertEquals(1, backtracker.countSolutions(parse("wikipedia-18"), 2));
+            assertEquals(2, backtracker.countSolutions(parse("null"), 2));
+            assertEquals(100, backtracker.countSolutions(parse("null"), 100));
+            assertTrue(backtracker.getStats().getNodes() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
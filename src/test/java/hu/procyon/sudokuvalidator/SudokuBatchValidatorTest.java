@@ -0,0 +1,323 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SudokuBatchValidatorTest
+ */
+public class SudokuBatchValidatorTest {
+
+    private static final String VALID =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String NOT_UNIQUE =
+        ".................................................................................";
+    private static final String INVALID =
+        "55..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    private List<SudokuResult> results;
+    private SudokuBatchValidator validator;
+
+    @Before
+    public void setup() {
+        results = new ArrayList<>();
+        validator = new SudokuBatchValidator(result -> {
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+    }
+
+    private String stream(int noPuzzles) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < noPuzzles; i++) {
+            sb.append(i % 3 == 0 ? VALID : i % 3 == 1 ? NOT_UNIQUE : INVALID).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static SudokuVerdict expected(int i) {
+        return i % 3 == 0 ? SudokuVerdict.VALID : i % 3 == 1 ? SudokuVerdict.NOT_UNIQUE : SudokuVerdict.INVALID;
+    }
+
+    @Test
+    public void testStream() {
+        validator.setUniquenessChecked(true);
+        validator.validateStream("feed", new StringReader(stream(6)));
+        validator.finish();
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).sequence);
+            assertEquals("feed:" + (i + 1), results.get(i).source);
+            assertEquals(expected(i), results.get(i).verdict);
+        }
+        assertEquals(2, validator.getNumberOfValidPuzzles());
+        assertFalse(validator.isAllValid());
+    }
+
+    @Test
+    public void testParallelOrdered() {
+        validator.setUniquenessChecked(true);
+        validator.setThreads(4, true);
+        validator.validateStream("feed", new StringReader(stream(300)));
+        validator.finish();
+        assertEquals(300, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).sequence);
+            assertEquals(expected(i), results.get(i).verdict);
+        }
+    }
+
+    @Test
+    public void testParallelUnordered() {
+        validator.setEngine(SudokuSolvers.DANCING_LINKS, SudokuHeuristic.MRV);
+        validator.setThreads(3, false);
+        validator.validateStream("feed", new StringReader(stream(300)));
+        validator.finish();
+        assertEquals(300, results.size());
+        assertEquals(200, validator.getNumberOfValidPuzzles());
+        for (SudokuResult result : results) {
+            assertEquals(result.sequence % 3 == 2 ? SudokuVerdict.INVALID : SudokuVerdict.VALID, result.verdict);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        validator.setUniquenessChecked(true);
+        validator.setBudget(5, 0);
+        validator.validateStream("feed", new StringReader(VALID + "\n" + NOT_UNIQUE + "\n"));
+        assertEquals(SudokuVerdict.VALID, results.get(0).verdict);
+        assertEquals(SudokuVerdict.UNDETERMINED, results.get(1).verdict);
+        assertEquals(6, results.get(1).verdict.getCode());
+    }
+
+    @Test
+    public void testMetrics() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        SudokuMetricsSink metricsSink = new SudokuMetricsSink(results::add, new PrintStream(json));
+        validator = new SudokuBatchValidator(metricsSink);
+        validator.setUniquenessChecked(true);
+        validator.setMetricsCollected(true);
+        validator.validateStream("feed", new StringReader(stream(3) + "x\n"));
+        validator.finish();
+        metricsSink.writeTotal();
+
+        assertEquals(4, results.size());
+        for (int i = 0; i < 2; i++) {
+            SudokuMetrics metrics = results.get(i).metrics;
+            assertNotNull(metrics);
+            assertTrue(metrics.solveNanos > 0);
+            assertTrue(metrics.stats.isDetailed());
+            assertTrue(metrics.stats.getNodes() > 0);
+        }
+        assertTrue(results.get(1).metrics.stats.getMaxDepth() > 0);
+        assertTrue(results.get(1).metrics.stats.getMaxBranching() > 1);
+        // the puzzle with a repeated digit is rejected by the parser
+        assertNull(results.get(2).metrics);
+        assertNull(results.get(3).metrics);
+
+        String[] lines = json.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("{\"type\":\"puzzle\",\"source\":\"feed:1\",\"verdict\":\"VALID\",\"code\":0,\"parseNanos\":"));
+        assertTrue(lines[0].contains(",\"branching\":["));
+        // the empty puzzle is found not unique by the analysis, and searched only for one solution
+        assertNull(results.get(0).finding);
+        assertEquals(SudokuCheck.TOO_FEW_GIVENS, results.get(1).finding.check);
+        assertTrue(lines[1].contains("\"verdict\":\"NOT_UNIQUE\",\"code\":5,\"check\":\"TOO_FEW_GIVENS\","));
+        assertEquals("{\"type\":\"puzzle\",\"source\":\"feed:4\",\"verdict\":\"PARSE_ERROR\",\"code\":4}", lines[3]);
+        assertTrue(lines[4].startsWith("{\"type\":\"total\",\"puzzles\":4,\"valid\":1,"));
+        assertEquals(validator.getTotalStats().getNodes(), sum(results));
+    }
+
+    private static long sum(List<SudokuResult> results) {
+        long nodes = 0;
+        for (SudokuResult result : results) {
+            nodes += result.metrics != null ? result.metrics.stats.getNodes() : 0;
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testCache() {
+        validator.setUniquenessChecked(true);
+        validator.setCache(new SudokuSolutionCache(10));
+        validator.validateStream("feed", new StringReader(stream(6)));
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expected(i), results.get(i).verdict);
+        }
+        // the invalid puzzles are rejected by the parser, the others are solved once
+        assertEquals(2, validator.getCache().getHits());
+        assertEquals(2, validator.getCache().getMisses());
+    }
+
+    @Test
+    public void testCacheEquivalent() throws Exception {
+        validator.setUniquenessChecked(true);
+        // an engine needing thousands of nodes for the puzzle
+        validator.setEngine(SudokuSolvers.IN_PLACE, SudokuHeuristic.FIRST);
+        validator.setCache(new SudokuSolutionCache(10));
+        SudokuState puzzle = new SudokuStreamParser(new StringReader(VALID)).next();
+        // transposed, with relabeled digits
+        SudokuState equivalent = new SudokuState();
+        for (int row = 0; row < 9; row++) {
+            for (int column = 0; column < 9; column++) {
+                if (puzzle.isDigitSet(column, row)) {
+                    equivalent.setDigit(row, column, 10 - puzzle.getDigit(column, row));
+                }
+            }
+        }
+        assertEquals(SudokuVerdict.VALID, validator.validate(puzzle));
+        assertEquals(SudokuVerdict.VALID, validator.validate(equivalent));
+        // both grids miss, the canonical form of the first one misses, that of the second one hits
+        assertEquals(1, validator.getCache().getHits());
+        assertEquals(3, validator.getCache().getMisses());
+        assertEquals(SudokuVerdict.VALID, validator.validate(equivalent));
+        assertEquals(2, validator.getCache().getHits());
+    }
+
+    @Test
+    public void testSolve() throws Exception {
+        validator.setUniquenessChecked(true);
+        validator.setCache(new SudokuSolutionCache(10));
+        // the second round finds the numbers of solutions in the cache, but the puzzles are still solved
+        String[] puzzles = { VALID, NOT_UNIQUE, VALID, NOT_UNIQUE };
+        for (int i = 0; i < puzzles.length; i++) {
+            SudokuState state = new SudokuStreamParser(new StringReader(puzzles[i])).next();
+            SudokuResult result = validator.solve(state);
+            assertEquals(expected(i % 2), result.verdict);
+            assertTrue(result.solution.isFull());
+            assertEquals(i % 2 == 0 ? 5 : result.solution.getDigit(0, 0), result.solution.getDigit(0, 0));
+        }
+        SudokuState unsolvable = new SudokuStateParser(3).parseFile(new File("example_puzzles", "random-medium1-incorrect"));
+        SudokuResult result = validator.solve(unsolvable);
+        assertEquals(SudokuVerdict.INVALID, result.verdict);
+        assertNull(result.solution);
+    }
+
+    @Test
+    public void testFile() {
+        assertEquals(SudokuVerdict.VALID, validator.validate(new File("example_puzzles", "wikipedia")));
+        assertEquals(SudokuVerdict.INVALID, validator.validate(new File("example_puzzles", "random-medium1-incorrect")));
+        assertEquals(SudokuVerdict.PARSE_ERROR, validator.validate(new File("example_puzzles", "random-medium1-illformed")));
+        // a directory is not a puzzle file, as before the batch mode
+        assertEquals(SudokuVerdict.PARSE_ERROR, validator.validate(new File("example_puzzles")));
+        assertEquals(SudokuVerdict.NOT_FOUND, validator.validate(new File("example_puzzles", "missing")));
+    }
+
+    @Test
+    public void testDirectory() {
+        validator.validateInput("example_puzzles");
+        assertEquals(new File("example_puzzles").list().length, results.size());
+        assertEquals(SudokuVerdict.VALID, verdictOf("example_puzzles" + File.separator + "wikipedia"));
+        assertEquals(SudokuVerdict.INVALID, verdictOf("example_puzzles" + File.separator + "random-medium1-incorrect"));
+    }
+
+    @Test
+    public void testGlob() {
+        validator.validateInput("example_puzzles/wikipedia-1*");
+        assertEquals(3, results.size());
+        assertEquals(SudokuVerdict.VALID, verdictOf("example_puzzles" + File.separator + "wikipedia-17"));
+        assertNull(verdictOf("example_puzzles" + File.separator + "wikipedia"));
+    }
+
+    @Test
+    public void testMissing() {
+        validator.validateInput("example_puzzles/missing");
+        validator.validateInput("missing/*");
+        assertEquals(1, results.size());
+        assertEquals(SudokuVerdict.NOT_FOUND, results.get(0).verdict);
+        assertEquals(2, results.get(0).verdict.getCode());
+    }
+
+    @Test
+    public void testFailingPuzzle() {
+        // a cache failing on the empty puzzles
+        validator.setCache(new SudokuSolutionCache(10) {
+            @Override
+            public String getKey(SudokuState state, int limit) {
+                if (state.getNumberOfDigits() == 0) {
+                    throw new IllegalStateException("failing cache");
+                }
+                return super.getKey(state, limit);
+            }
+        });
+        validator.setThreads(3, true);
+        validator.validateStream("feed", new StringReader(stream(300)));
+        validator.finish();
+        assertEquals(300, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).sequence);
+            assertEquals(i % 3 == 1 ? SudokuVerdict.ERROR : expected(i), results.get(i).verdict);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingSink() {
+        AtomicInteger noCalls = new AtomicInteger();
+        SudokuBatchValidator failing = new SudokuBatchValidator(result -> {
+            // the sink fails once, in the middle of the stream
+            if (noCalls.incrementAndGet() == 100) {
+                throw new IllegalStateException("failing sink");
+            }
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        failing.setThreads(2, true);
+        failing.validateStream("feed", new StringReader(stream(3000)));
+        failing.finish();
+        assertEquals(2999, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i < 99 ? i : i + 1, results.get(i).sequence);
+        }
+    }
+
+    @Test
+    public void testOrderedWindow() throws InterruptedException {
+        SudokuOrderedSink sink = new SudokuOrderedSink(results::add, 2);
+        sink.awaitWindow(1);
+        sink.accept(new SudokuResult(1, "b", SudokuVerdict.VALID));
+        Thread submitter = new Thread(() -> {
+            try {
+                sink.awaitWindow(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        submitter.join(200);
+        // the result 0 is late, so the result 2 would be too far ahead
+        assertTrue(submitter.isAlive());
+        assertEquals(1, sink.getNumberOfPending());
+        sink.accept(new SudokuResult(0, "a", SudokuVerdict.VALID));
+        submitter.join(10000);
+        assertFalse(submitter.isAlive());
+        assertEquals(2, results.size());
+        assertEquals(0, sink.getNumberOfPending());
+    }
+
+    private SudokuVerdict verdictOf(String source) {
+        for (SudokuResult result : results) {
+            if (result.source.equals(source)) {
+                return result.verdict;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,171 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SudokuBinaryParserTest
+ */
+public class SudokuBinaryParserTest {
+
+    private static final String PUZZLES =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79\n"
+        + ".................................................................................\n"
+        + "123456789456789123789123456214365897365897214897214365531642978642978531978531642\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<SudokuState> parse(String records) throws Exception {
+        List<SudokuState> states = new ArrayList<>();
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(records));
+        for (SudokuState state; (state = parser.next()) != null; ) {
+            states.add(state);
+        }
+        return states;
+    }
+
+    private File write(List<SudokuState> puzzles) throws Exception {
+        File file = folder.newFile();
+        try (SudokuBinaryWriter writer = new SudokuBinaryWriter(file, 3, false)) {
+            for (SudokuState puzzle : puzzles) {
+                writer.write(puzzle);
+            }
+        }
+        return file;
+    }
+
+    private static List<SudokuState> readAll(SudokuBinaryParser parser) throws Exception {
+        List<SudokuState> states = new ArrayList<>();
+        try (SudokuBinaryParser records = parser) {
+            for (SudokuState state; (state = records.next()) != null; ) {
+                states.add(state);
+            }
+        }
+        return states;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<SudokuState> puzzles = parse(PUZZLES);
+        File file = write(puzzles);
+        assertEquals(SudokuBinaryParser.HEADER_SIZE + 3 * 41, file.length());
+        assertTrue(SudokuBinaryParser.isBinaryFile(file));
+        SudokuBinaryParser parser = new SudokuBinaryParser(file);
+        assertEquals(3, parser.getCount());
+        assertEquals(3, parser.getBlockSize());
+        assertFalse(parser.hasResults());
+        assertEquals(puzzles, readAll(parser));
+        assertEquals(puzzles, readAll(new SudokuBinaryParser(file, 50)));
+    }
+
+    @Test
+    public void testResults() throws Exception {
+        List<SudokuState> puzzles = parse(PUZZLES);
+        File file = folder.newFile();
+        try (SudokuBinaryWriter writer = new SudokuBinaryWriter(file, 3, true)) {
+            writer.write(puzzles.get(0), SudokuVerdict.VALID, puzzles.get(2));
+            writer.write(puzzles.get(1), SudokuVerdict.NOT_FOUND, null);
+        }
+        assertEquals(SudokuBinaryParser.HEADER_SIZE + 2 * 83, file.length());
+        try (SudokuBinaryParser parser = new SudokuBinaryParser(file)) {
+            assertTrue(parser.hasResults());
+            assertEquals(puzzles.get(0), parser.next());
+            assertEquals(SudokuVerdict.VALID, parser.getVerdict());
+            assertEquals(puzzles.get(2), parser.getSolution());
+            assertEquals(puzzles.get(1), parser.next());
+            assertEquals(SudokuVerdict.NOT_FOUND, parser.getVerdict());
+            assertNull(parser.getSolution());
+            assertNull(parser.next());
+        }
+    }
+
+    @Test
+    public void testLargerPuzzles() throws Exception {
+        SudokuState puzzle = new SudokuState(2);
+        puzzle.setDigit(1, 2, 4);
+        File file = folder.newFile();
+        try (SudokuBinaryWriter writer = new SudokuBinaryWriter(file, 2, false)) {
+            writer.write(puzzle);
+        }
+        try (SudokuBinaryParser parser = new SudokuBinaryParser(file)) {
+            assertEquals(2, parser.getBlockSize());
+            assertEquals(puzzle, parser.next());
+        }
+        try {
+            new SudokuBinaryWriter(folder.newFile(), 4, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // 16 digits do not fit in 4 bits
+        }
+    }
+
+    @Test
+    public void testUnclosedWriter() throws Exception {
+        File file = write(parse(PUZZLES));
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(SudokuBinaryParser.COUNT_OFFSET);
+            raw.writeLong(-1);
+            // a partly written last record
+            raw.setLength(file.length() - 20);
+        }
+        try (SudokuBinaryParser parser = new SudokuBinaryParser(file)) {
+            assertEquals(2, parser.getCount());
+            assertEquals(parse(PUZZLES).subList(0, 2), readAll(parser));
+        }
+    }
+
+    @Test
+    public void testInvalidRecords() throws Exception {
+        File file = write(parse(PUZZLES));
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // digit 15 in the first cell of the first record, two 1s in the first row of the second record
+            raw.seek(SudokuBinaryParser.HEADER_SIZE);
+            raw.write(0xF3);
+            raw.seek(SudokuBinaryParser.HEADER_SIZE + 41);
+            raw.write(0x11);
+        }
+        try (SudokuBinaryParser parser = new SudokuBinaryParser(file)) {
+            try {
+                parser.next();
+                fail();
+            } catch (SudokuParseException e) {
+                assertEquals(0, e.getLine());
+                assertEquals(0, e.getPosition());
+            }
+            try {
+                parser.next();
+                fail();
+            } catch (SudokuStateException e) {
+                // the record is skipped
+            }
+            assertEquals(parse(PUZZLES).get(2), parser.next());
+            assertEquals(2, parser.getRecordLineNumber());
+            assertNull(parser.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTextFile() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), PUZZLES.getBytes(StandardCharsets.US_ASCII));
+        assertFalse(SudokuBinaryParser.isBinaryFile(file));
+        new SudokuBinaryParser(file);
+    }
+}
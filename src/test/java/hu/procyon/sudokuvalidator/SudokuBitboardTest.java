@@ -0,0 +1,74 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SudokuBitboardTest
+ */
+public class SudokuBitboardTest {
+
+    private static final String PUZZLE =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    private SudokuState state;
+
+    @Before
+    public void setup() throws Exception {
+        state = new SudokuStreamParser(new StringReader(PUZZLE)).next();
+    }
+
+    @Test
+    public void testConversion() {
+        SudokuBitboard board = new SudokuBitboard(state);
+        assertEquals(30, board.getNumberOfDigits());
+        assertEquals(state, board.toState());
+        for (int cell = 0; cell < 81; cell++) {
+            assertEquals(state.getDigit(cell / 9, cell % 9), board.getDigit(cell));
+            assertEquals(state.getCandidateMask(cell / 9, cell % 9), board.getCandidateMask(cell));
+        }
+    }
+
+    @Test
+    public void testSetDigit() {
+        SudokuBitboard board = new SudokuBitboard();
+        assertTrue(board.setDigit(10, 9));
+        assertTrue(board.isDigitSet(10));
+        assertFalse(board.setDigit(10, 1));
+        assertFalse(board.canSetDigit(16, 9));
+        assertFalse(board.canSetDigit(73, 9));
+        assertFalse(board.setDigit(20, 9));
+        assertTrue(board.canSetDigit(80, 9));
+        assertEquals(1, board.getNumberOfDigits());
+    }
+
+    @Test
+    public void testCopy() {
+        SudokuBitboard board = new SudokuBitboard(state);
+        SudokuBitboard copy = board.copy();
+        assertTrue(copy.setDigit(2, 4));
+        assertEquals(0, board.getDigit(2));
+        assertEquals(state, board.toState());
+    }
+
+    @Test
+    public void testPropagate() {
+        SudokuBitboard board = new SudokuBitboard(state);
+        assertTrue(board.propagate());
+        assertTrue(board.isFull());
+        assertEquals(new SudokuBacktracker().findSolution(state), board.toState());
+
+        SudokuBitboard contradiction = new SudokuBitboard();
+        for (int digit = 1; digit <= 8; digit++) {
+            contradiction.setDigit(digit, digit);
+        }
+        contradiction.setDigit(9 * 3, 9);
+        assertFalse(contradiction.propagate());
+    }
+}
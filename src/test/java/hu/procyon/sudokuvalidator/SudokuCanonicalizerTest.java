@@ -0,0 +1,152 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SudokuCanonicalizerTest
+ */
+public class SudokuCanonicalizerTest {
+
+    private static final String[] PUZZLES = {
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79",
+        "...8.1..........435............7.8........1...2..3....6......75..34........2..6..",
+        "1................................................................................",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SudokuCanonicalizer canonicalizer = new SudokuCanonicalizer();
+    private final Random random = new Random(42);
+
+    private static SudokuState parse(String puzzle) throws Exception {
+        return new SudokuStreamParser(new StringReader(puzzle)).next();
+    }
+
+    private List<Integer> permutation(int n) {
+        List<Integer> permutation = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            permutation.add(i);
+        }
+        Collections.shuffle(permutation, random);
+        return permutation;
+    }
+
+    /**
+     * Gives the order of the rows (or columns) for a random permutation of the bands and the rows within them.
+     */
+    private int[] lineOrder() {
+        List<Integer> bands = permutation(3);
+        int[] order = new int[9];
+        for (int band = 0; band < 3; band++) {
+            List<Integer> rows = permutation(3);
+            for (int i = 0; i < 3; i++) {
+                order[band * 3 + i] = bands.get(band) * 3 + rows.get(i);
+            }
+        }
+        return order;
+    }
+
+    private SudokuState transform(SudokuState state) {
+        int[] rows = lineOrder();
+        int[] columns = lineOrder();
+        List<Integer> digits = permutation(9);
+        boolean transposed = random.nextBoolean();
+        SudokuState result = new SudokuState();
+        for (int row = 0; row < 9; row++) {
+            for (int column = 0; column < 9; column++) {
+                int digit = transposed ? state.getDigit(columns[column], rows[row]) : state.getDigit(rows[row], columns[column]);
+                if (digit != 0) {
+                    result.setDigit(row, column, digits.get(digit - 1) + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testInvariantUnderSymmetries() throws Exception {
+        for (String puzzle : PUZZLES) {
+            SudokuState state = parse(puzzle);
+            String canonical = canonicalizer.canonicalize(state);
+            for (int i = 0; i < 20; i++) {
+                SudokuState transformed = transform(state);
+                assertEquals(canonical, canonicalizer.canonicalize(transformed));
+            }
+        }
+    }
+
+    @Test
+    public void testInvariantForDensePuzzles() throws Exception {
+        SudokuState puzzle = parse(PUZZLES[0]);
+        SudokuBacktracker solver = new SudokuBacktracker();
+        assertEquals(1, solver.countSolutions(puzzle, 1));
+        SudokuState solution = solver.getFirstSolution();
+        for (int noGivens : new int[] {54, 63, 72, 81}) {
+            SudokuState state = new SudokuState();
+            for (int cell = 0; cell < 81; cell++) {
+                if (puzzle.getDigit(cell / 9, cell % 9) != 0 || cell * 7 % 81 < noGivens) {
+                    state.setDigit(cell / 9, cell % 9, solution.getDigit(cell / 9, cell % 9));
+                }
+            }
+            String canonical = canonicalizer.canonicalize(state);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(canonical, canonicalizer.canonicalize(transform(state)));
+            }
+        }
+    }
+
+    @Test
+    public void testCanonicalFormIsEquivalent() throws Exception {
+        SudokuState state = parse(PUZZLES[0]);
+        String canonical = canonicalizer.canonicalize(state);
+        assertEquals("1", canonical.substring(0, 1));
+        assertEquals(canonical, canonicalizer.canonicalize(parse(canonical)));
+        assertEquals(1, new SudokuBacktracker().countSolutions(parse(canonical), 2));
+        assertNotEquals(canonical, canonicalizer.canonicalize(parse(PUZZLES[1])));
+    }
+
+    @Test
+    public void testCacheEviction() {
+        SudokuSolutionCache cache = new SudokuSolutionCache(2);
+        cache.put("a", 1);
+        cache.put("b", 0);
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 2);
+        assertEquals(-1, cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(2, cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testCachePersistence() throws Exception {
+        SudokuSolutionCache cache = new SudokuSolutionCache(10);
+        cache.put(cache.getKey(parse(PUZZLES[0]), 2), 1);
+        cache.put(cache.getCanonicalKey(parse(PUZZLES[1]), 2), 1);
+        File file = new File(folder.getRoot(), "cache");
+        cache.save(file);
+        SudokuSolutionCache loaded = new SudokuSolutionCache(10);
+        loaded.load(file);
+        assertEquals(2, loaded.size());
+        assertEquals(1, loaded.get(loaded.getKey(parse(PUZZLES[0]), 2)));
+        assertEquals(-1, loaded.get(loaded.getKey(parse(PUZZLES[0]), 1)));
+        // the grid is the key of the puzzle itself, the canonical form that of the equivalent puzzles too
+        assertEquals(-1, loaded.get(loaded.getKey(transform(parse(PUZZLES[0])), 2)));
+        assertEquals(1, loaded.get(loaded.getCanonicalKey(transform(parse(PUZZLES[1])), 2)));
+    }
+}
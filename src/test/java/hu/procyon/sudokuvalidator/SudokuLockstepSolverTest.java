@@ -0,0 +1,131 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * SudokuLockstepSolverTest
+ */
+public class SudokuLockstepSolverTest {
+
+    private static final String[] SOLVABLE_PUZZLES = {
+        "basic", "basic-minimal", "magazine", "null", "random-easy1", "random-medium1", "wikipedia", "wikipedia-17"
+    };
+
+    /**
+     * Generates puzzles with no, one or more solutions: digits removed from a solution grid,
+     * or digits set at random on an empty table.
+     */
+    private static List<SudokuState> generate(int count, long seed) {
+        Random random = new Random(seed);
+        SudokuSolver solver = new SudokuDancingLinks();
+        SudokuState grid = solver.findSolution(new SudokuState());
+        List<SudokuState> puzzles = new ArrayList<>();
+        while (puzzles.size() < count) {
+            SudokuState puzzle;
+            if (random.nextBoolean()) {
+                puzzle = grid.copy();
+                int noRemoved = 30 + random.nextInt(35);
+                for (int i = 0; i < noRemoved; i++) {
+                    puzzle.unsetDigit(random.nextInt(9), random.nextInt(9));
+                }
+            }
+            else {
+                puzzle = new SudokuState();
+                int noSet = 10 + random.nextInt(25);
+                for (int i = 0; i < noSet; i++) {
+                    int row = random.nextInt(9);
+                    int column = random.nextInt(9);
+                    int digit = 1 + random.nextInt(9);
+                    if (!puzzle.isDigitSet(row, column) && puzzle.canSetDigit(row, column, digit)) {
+                        puzzle.setDigit(row, column, digit);
+                    }
+                }
+            }
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+
+    @Test
+    public void testSameVerdicts() {
+        List<SudokuState> puzzles = generate(200, 20191124L);
+        SudokuSolver reference = new SudokuBacktracker();
+        SudokuLockstepSolver solver = new SudokuLockstepSolver();
+        int[] noSolved = new int[3];
+        for (int limit = 1; limit <= 2; limit++) {
+            int[] expected = new int[puzzles.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = reference.countSolutions(puzzles.get(i), limit);
+                noSolved[expected[i]]++;
+            }
+            assertArrayEquals(expected, solver.countSolutions(puzzles.toArray(new SudokuState[0]), limit));
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], solver.countSolutions(puzzles.get(i), limit));
+            }
+        }
+        // every kind of puzzle is tested
+        assertTrue(noSolved[0] > 0 && noSolved[1] > 0 && noSolved[2] > 0);
+    }
+
+    @Test
+    public void testFindSolution() throws Exception {
+        SudokuStateParser parser = new SudokuStateParser();
+        SudokuLockstepSolver solver = new SudokuLockstepSolver();
+        for (String name : SOLVABLE_PUZZLES) {
+            SudokuState puzzle = parser.parseFile(new File("example_puzzles", name));
+            SudokuBacktrackerTest.assertSolves(puzzle, solver.findSolution(puzzle));
+        }
+        assertNull(solver.findSolution(parser.parseFile(new File("example_puzzles", "random-medium1-incorrect"))));
+    }
+
+    @Test
+    public void testScalarLanes() {
+        List<SudokuState> puzzles = generate(SudokuLanes.LANES, 42L);
+        SudokuLanes scalar = new SudokuLanes();
+        SudokuLanes lanes = SudokuLanes.create();
+        for (int lane = 0; lane < SudokuLanes.LANES; lane++) {
+            scalar.load(lane, puzzles.get(lane));
+            lanes.load(lane, puzzles.get(lane));
+        }
+        assertEquals(scalar.propagate(), lanes.propagate());
+        assertArrayEquals(scalar.masks, lanes.masks);
+    }
+
+    @Test
+    public void testMixedSizes() {
+        SudokuState large = new SudokuState(4);
+        large.setDigit(0, 0, 16);
+        SudokuState[] puzzles = generate(20, 7L).toArray(new SudokuState[0]);
+        puzzles[3] = large;
+        SudokuSolver reference = new SudokuBacktracker();
+        int[] counts = new SudokuLockstepSolver().countSolutions(puzzles, 2);
+        for (int i = 0; i < puzzles.length; i++) {
+            assertEquals(reference.countSolutions(puzzles[i], 2), counts[i]);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        SudokuState[] puzzles = {
+            new SudokuState(), generate(1, 1L).get(0)
+        };
+        SudokuLockstepSolver solver = new SudokuLockstepSolver();
+        solver.getStats().setBudget(1, 0);
+        int[] counts = solver.countSolutions(puzzles, 2);
+        assertEquals(-1, counts[0]);
+        assertTrue(solver.getStats().isAborted());
+        solver.getStats().setBudget(0, 0);
+        assertEquals(2, solver.countSolutions(puzzles, 2)[0]);
+        assertTrue(!solver.getStats().isAborted());
+    }
+}
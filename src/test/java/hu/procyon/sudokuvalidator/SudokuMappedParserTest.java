@@ -0,0 +1,163 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SudokuMappedParserTest
+ */
+public class SudokuMappedParserTest {
+
+    private static final String WIKIPEDIA_ONE_LINE =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    private static final String WIKIPEDIA_COMMA =
+        "5,3, , ,7\n6, , ,1,9,5\n ,9,8, , , , ,6\n8, , , ,6, , , ,3\n4, , ,8, ,3, , ,1\n"
+        + "7, , , ,2, , , ,6\n ,6, , , , ,2,8\n , , ,4,1,9, , ,5\n , , , ,8, , ,7,9";
+
+    /** Records of every kind, with errors, parsed the same way by both parsers. */
+    private static final String MIXED =
+        "\n" + WIKIPEDIA_COMMA + "\n\n\n" + WIKIPEDIA_ONE_LINE + "\n  \n"
+        + WIKIPEDIA_ONE_LINE.replace('9', 'x') + "\n"
+        + "1\n\n\n\n\n\n\n\n9\n\n"
+        + "55" + WIKIPEDIA_ONE_LINE.substring(2) + "\n"
+        + " 1 , +2,3\n4,x\n5,5,y\n0\n\n\n\n\n\n\n"
+        + "12\n\n\n\n\n\n\n\n\n"
+        + WIKIPEDIA_COMMA.replace("\n", "\r\n") + "\r\n"
+        + WIKIPEDIA_ONE_LINE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String content) throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    @Test
+    public void testSameAsStreamParser() throws Exception {
+        List<String> expected = parseAll(new SudokuStreamParser(new StringReader(MIXED)));
+        assertEquals(expected, parseAll(new SudokuMappedParser(write(MIXED))));
+        assertEquals(9, expected.size());
+    }
+
+    @Test
+    public void testRowsWithTooManyCells() throws Exception {
+        // the extra elements are set like by the other parsers, giving the same verdicts
+        String rows = "1,2,3,4,5,6,7,8,9,1\n\n\n\n\n\n\n\n\n\n"
+            + " , , , , , , , , ,5\n1, , , , , , , , , \n\n\n\n\n\n\n\n\n"
+            + "5,3, , ,7, , , , , , ,\n6, , ,1,9,5, , , ,2,x\n\n\n\n\n\n\n\n";
+        assertEquals(parseAll(new SudokuStreamParser(new StringReader(rows))), parseAll(new SudokuMappedParser(write(rows))));
+        File large = new File("example_puzzles", "16x16");
+        assertEquals(parseAll(new SudokuStreamParser(new FileReader(large), 4)), parseAll(new SudokuMappedParser(large, 4)));
+    }
+
+    @Test
+    public void testSmallWindows() throws Exception {
+        List<String> expected = parseAll(new SudokuStreamParser(new StringReader(MIXED)));
+        File file = write(MIXED);
+        for (int windowSize : new int[] {83, 100, 128, 1000}) {
+            assertEquals(expected, parseAll(new SudokuMappedParser(file, 3, windowSize)));
+        }
+    }
+
+    @Test(expected = SudokuParseException.class)
+    public void testLineLongerThanWindow() throws Exception {
+        try (SudokuMappedParser parser = new SudokuMappedParser(write(WIKIPEDIA_ONE_LINE + "\n" + WIKIPEDIA_ONE_LINE), 3, 50)) {
+            parser.next();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        try (SudokuMappedParser parser = new SudokuMappedParser(write(""))) {
+            assertNull(parser.next());
+            assertEquals(0, parser.getNumberOfRecords());
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testDirectory() throws Exception {
+        new SudokuMappedParser(folder.getRoot());
+    }
+
+    /**
+     * Parses every record, describing each by its line number and its state or its error.
+     */
+    private static List<String> parseAll(SudokuRecordParser parser) throws Exception {
+        List<String> records = new ArrayList<>();
+        try {
+            while (true) {
+                String record;
+                try {
+                    SudokuState state = parser.next();
+                    if (state == null) {
+                        break;
+                    }
+                    record = state.toString();
+                } catch (SudokuParseException e) {
+                    record = "parse " + e.getLine() + ":" + e.getPosition() + " " + e.getMessage();
+                } catch (SudokuStateException e) {
+                    record = "state " + e.getMessage();
+                }
+                records.add(parser.getRecordLineNumber() + " " + record);
+            }
+        } finally {
+            parser.close();
+        }
+        return records;
+    }
+
+    @Test
+    public void testOpen() throws Exception {
+        try (SudokuRecordParser parser = SudokuRecordParser.open(write(MIXED), SudokuState.DEFAULT_BLOCK_SIZE)) {
+            assertTrue(parser instanceof SudokuMappedParser);
+        }
+    }
+
+    @Test
+    public void testOpenPipe() throws Exception {
+        // a named pipe, like the file of a process substitution, cannot be mapped
+        File pipe = new File(folder.getRoot(), "pipe");
+        Process mkfifo;
+        try {
+            mkfifo = new ProcessBuilder("mkfifo", pipe.getPath()).start();
+        } catch (IOException e) {
+            mkfifo = null;
+        }
+        assumeTrue(mkfifo != null && mkfifo.waitFor() == 0);
+        Thread writer = new Thread(() -> {
+            try (OutputStream out = new FileOutputStream(pipe)) {
+                out.write((WIKIPEDIA_ONE_LINE + "\n" + WIKIPEDIA_COMMA + "\n").getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try (SudokuRecordParser parser = SudokuRecordParser.open(pipe, SudokuState.DEFAULT_BLOCK_SIZE)) {
+            assertTrue(parser instanceof SudokuStreamParser);
+            assertEquals(parser.next(), parser.next());
+            assertNull(parser.next());
+        }
+        writer.join();
+    }
+}
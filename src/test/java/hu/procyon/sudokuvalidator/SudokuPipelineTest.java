@@ -0,0 +1,159 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SudokuPipelineTest
+ */
+public class SudokuPipelineTest {
+
+    private static final String VALID =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String NOT_UNIQUE =
+        ".................................................................................";
+    private static final String INVALID =
+        "55..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<SudokuResult> results;
+    private SudokuBatchValidator validator;
+
+    @Before
+    public void setup() {
+        results = new ArrayList<>();
+        validator = new SudokuBatchValidator(result -> {
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        validator.setUniquenessChecked(true);
+    }
+
+    private static String stream(int noPuzzles) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < noPuzzles; i++) {
+            sb.append(i % 3 == 0 ? VALID : i % 3 == 1 ? NOT_UNIQUE : INVALID).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static SudokuVerdict expected(int i) {
+        return i % 3 == 0 ? SudokuVerdict.VALID : i % 3 == 1 ? SudokuVerdict.NOT_UNIQUE : SudokuVerdict.INVALID;
+    }
+
+    private String file(String content) throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file.getPath();
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        String path = file(stream(300));
+        SudokuPipeline pipeline = new SudokuPipeline(validator, 3, true, 7);
+        pipeline.run(Collections.singletonList(path));
+        assertEquals(300, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).sequence);
+            assertEquals(path + ":" + (i + 1), results.get(i).source);
+            assertEquals(expected(i), results.get(i).verdict);
+        }
+        assertEquals(100, validator.getNumberOfValidPuzzles());
+        for (SudokuStageStats stats : pipeline.getStageStats()) {
+            assertEquals(stats.getName(), 300, stats.getItems());
+            assertTrue(stats.getMaxQueueDepth() <= stats.getQueueCapacity());
+            assertTrue(stats.getUtilization() <= 1);
+        }
+        assertEquals(3, pipeline.getStageStats().get(2).getThreads());
+    }
+
+    @Test
+    public void testBatchEngine() throws Exception {
+        validator.setEngine(SudokuSolvers.VECTOR, SudokuHeuristic.MRV);
+        new SudokuPipeline(validator, 2, true).run(Collections.singletonList(file(stream(300))));
+        assertEquals(300, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expected(i), results.get(i).verdict);
+        }
+    }
+
+    @Test
+    public void testFailingSink() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        SudokuBatchValidator failing = new SudokuBatchValidator(result -> {
+            if (accepted.incrementAndGet() == 10) {
+                throw new IllegalStateException("sink failed");
+            }
+        });
+        String path = file(stream(6000));
+        SudokuPipeline pipeline = new SudokuPipeline(failing, 2, true);
+        AtomicReference<Exception> thrown = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            try {
+                pipeline.run(Collections.singletonList(path));
+            } catch (IllegalStateException e) {
+                thrown.set(e);
+            }
+        });
+        runner.start();
+        runner.join(60000);
+        assertFalse("Pipeline blocked after the sink failed", runner.isAlive());
+        assertEquals("sink failed", thrown.get().getCause().getMessage());
+        assertTrue(accepted.get() < 6000);
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        SudokuPipeline pipeline = new SudokuPipeline(validator, 4, false, 5);
+        pipeline.run(Collections.singletonList(file(stream(100))));
+        assertEquals(100, results.size());
+        boolean[] seen = new boolean[100];
+        for (SudokuResult result : results) {
+            assertFalse(seen[(int) result.sequence]);
+            seen[(int) result.sequence] = true;
+            assertEquals(expected((int) result.sequence), result.verdict);
+        }
+    }
+
+    @Test
+    public void testInputs() throws Exception {
+        File binary = folder.newFile();
+        try (SudokuBinaryWriter writer = new SudokuBinaryWriter(binary, 3, false)) {
+            writer.write(new SudokuStreamParser(new StringReader(VALID)).next());
+        }
+        String missing = new File(folder.getRoot(), "missing").getPath();
+        SudokuPipeline pipeline = new SudokuPipeline(validator, 2, true, 2);
+        pipeline.setStandardInput(new ByteArrayInputStream((NOT_UNIQUE + "\nx\n").getBytes(StandardCharsets.US_ASCII)));
+        pipeline.run(Arrays.asList(SudokuPipeline.STDIN, missing, binary.getPath()));
+        assertEquals(4, results.size());
+        assertEquals("-:1", results.get(0).source);
+        assertEquals(SudokuVerdict.NOT_UNIQUE, results.get(0).verdict);
+        assertEquals("-:2", results.get(1).source);
+        assertEquals(SudokuVerdict.PARSE_ERROR, results.get(1).verdict);
+        assertEquals(missing, results.get(2).source);
+        assertEquals(SudokuVerdict.NOT_FOUND, results.get(2).verdict);
+        assertEquals(binary.getPath() + ":1", results.get(3).source);
+        assertEquals(SudokuVerdict.VALID, results.get(3).verdict);
+    }
+}
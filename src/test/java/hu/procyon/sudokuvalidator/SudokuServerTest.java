@@ -0,0 +1,131 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SudokuServerTest
+ */
+public class SudokuServerTest {
+
+    private static final String VALID =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String NOT_UNIQUE =
+        ".................................................................................";
+
+    private SudokuServer server;
+
+    @Before
+    public void setup() throws IOException {
+        // the worker may not be idle yet when the next request arrives, so there is a queue
+        start(1);
+    }
+
+    private void start(int queueSize) throws IOException {
+        SudokuBatchValidator validator = new SudokuBatchValidator(result -> { });
+        validator.setUniquenessChecked(true);
+        start(validator, queueSize);
+    }
+
+    private void start(SudokuBatchValidator validator, int queueSize) throws IOException {
+        server = new SudokuServer(validator, 1, queueSize);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(1);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private HttpURLConnection post(String body) throws IOException {
+        return post("/validate", body);
+    }
+
+    private HttpURLConnection post(String path, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.US_ASCII));
+        }
+        return connection;
+    }
+
+    @Test
+    public void testValidate() throws IOException {
+        assertEquals("1\tVALID\t0\n", read(post(VALID)));
+        assertEquals("1\tVALID\t0\n2\tNOT_UNIQUE\t5\n3\tPARSE_ERROR\t4\n4\tINVALID\t1\n",
+            read(post(VALID + "\n" + NOT_UNIQUE + "\n" + VALID.replace('9', 'x') + "\n55" + VALID.substring(2))));
+    }
+
+    @Test
+    public void testHealth() throws IOException {
+        assertEquals("OK\n", read(open("/health")));
+        assertEquals(405, post("/health", "").getResponseCode());
+    }
+
+    @Test
+    public void testBackpressure() throws IOException {
+        server.stop(0);
+        start(0);
+        // the only worker is kept busy by a request whose body is not complete yet
+        HttpURLConnection slow = open("/validate");
+        slow.setDoOutput(true);
+        slow.setChunkedStreamingMode(16);
+        OutputStream out = slow.getOutputStream();
+        out.write((VALID + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        int status;
+        do {
+            status = post(VALID).getResponseCode();
+        } while (status == 200 && System.currentTimeMillis() < deadline);
+        assertEquals(503, status);
+        out.close();
+        assertEquals("1\tVALID\t0\n", read(slow));
+    }
+
+    @Test
+    public void testInternalError() throws IOException {
+        server.stop(0);
+        SudokuBatchValidator validator = new SudokuBatchValidator(result -> { });
+        validator.setUniquenessChecked(true);
+        validator.setCache(new SudokuSolutionCache(16) {
+            @Override
+            public String getKey(SudokuState state, int limit) {
+                throw new IllegalStateException("failing cache");
+            }
+        });
+        start(validator, 1);
+        assertEquals(500, post(VALID).getResponseCode());
+        // the worker is not lost
+        assertEquals("OK\n", read(open("/health")));
+    }
+}
@@ -0,0 +1,127 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * SudokuSessionTest
+ */
+public class SudokuSessionTest {
+
+    private static final String VALID =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    /**
+     * Engine counting its searches.
+     */
+    private static class CountingSolver implements SudokuSolver {
+        private final SudokuSolver solver = new SudokuBacktracker();
+        int noFinds = 0;
+        int noCounts = 0;
+
+        @Override
+        public SudokuState findSolution(SudokuState initial) {
+            noFinds++;
+            return solver.findSolution(initial);
+        }
+
+        @Override
+        public int countSolutions(SudokuState initial, int limit) {
+            noCounts++;
+            return solver.countSolutions(initial, limit);
+        }
+
+        @Override
+        public SudokuSolverStats getStats() {
+            return solver.getStats();
+        }
+    }
+
+    private static SudokuState parse(String record) throws Exception {
+        return new SudokuStreamParser(new StringReader(record)).next();
+    }
+
+    @Test
+    public void testSameVerdicts() throws Exception {
+        Random random = new Random(20191124L);
+        SudokuBatchValidator validator = new SudokuBatchValidator(result -> { });
+        SudokuState solution = new SudokuBacktracker().findSolution(parse(VALID));
+        for (boolean uniquenessChecked : new boolean[] {false, true}) {
+            validator.setUniquenessChecked(uniquenessChecked);
+            SudokuSession session = new SudokuSession(parse(VALID), uniquenessChecked);
+            for (int i = 0; i < 400; i++) {
+                // clearing and filling cells in turn, mostly with the digits of the solution, so that every verdict occurs
+                boolean clearing = i / 20 % 2 == 0;
+                int row = random.nextInt(9);
+                int column = random.nextInt(9);
+                if (clearing) {
+                    session.unsetDigit(row, column);
+                }
+                else {
+                    session.setDigit(row, column, random.nextInt(25) > 0 ? solution.getDigit(row, column) : 1 + random.nextInt(9));
+                }
+                assertEquals(validator.validate(session.getState()), session.getVerdict());
+            }
+        }
+    }
+
+    @Test
+    public void testKeptSolutions() throws Exception {
+        CountingSolver solver = new CountingSolver();
+        SudokuSession session = new SudokuSession(parse(VALID), solver, true);
+        assertEquals(SudokuVerdict.VALID, session.getVerdict());
+        SudokuState solution = session.getSolution();
+        assertNotNull(solution);
+        int noSearches = solver.noFinds + solver.noCounts;
+
+        // digits of the solution keep it valid without a search
+        assertTrue(session.setDigit(0, 2, solution.getDigit(0, 2)));
+        assertTrue(session.setDigit(8, 0, solution.getDigit(8, 0)));
+        assertEquals(SudokuVerdict.VALID, session.getVerdict());
+        assertEquals(noSearches, solver.noFinds + solver.noCounts);
+
+        // a cleared given is searched with its other digits only
+        assertEquals(5, session.unsetDigit(0, 0));
+        assertEquals(SudokuVerdict.VALID, session.getVerdict());
+        assertEquals(1, solver.noCounts);
+        long others = session.getState().getCandidateMask(0, 0) & ~(1L << 5);
+        assertEquals(Long.bitCount(others), solver.noFinds + solver.noCounts - noSearches);
+
+        // the solution is unique, so another digit leaves no solution without a search
+        assertTrue(others != 0);
+        assertTrue(session.setDigit(0, 0, Long.numberOfTrailingZeros(others)));
+        assertEquals(SudokuVerdict.INVALID, session.getVerdict());
+        assertEquals(Long.bitCount(others), solver.noFinds + solver.noCounts - noSearches);
+    }
+
+    @Test
+    public void testWithoutUniqueness() throws Exception {
+        CountingSolver solver = new CountingSolver();
+        SudokuSession session = new SudokuSession(parse(VALID), solver, false);
+        assertEquals(SudokuVerdict.VALID, session.getVerdict());
+        for (int cell = 0; cell < 81; cell++) {
+            session.unsetDigit(cell / 9, cell % 9);
+            assertEquals(SudokuVerdict.VALID, session.getVerdict());
+        }
+        assertEquals(1, solver.noFinds);
+        assertEquals(0, solver.noCounts);
+        assertFalse(session.getState().isDigitSet(0, 0));
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        SudokuSolver solver = new SudokuBacktracker();
+        solver.getStats().setBudget(1, 0);
+        SudokuSession session = new SudokuSession(new SudokuState(), solver, false);
+        assertEquals(SudokuVerdict.UNDETERMINED, session.getVerdict());
+        solver.getStats().setBudget(0, 0);
+        assertEquals(SudokuVerdict.VALID, session.getVerdict());
+    }
+}
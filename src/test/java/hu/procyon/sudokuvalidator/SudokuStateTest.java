@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -100,4 +102,112 @@ public class SudokuStateTest {
         assertFalse(state.setDigit(0, 0, 9));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testUnsetDigit() {
+        assertTrue(state.setDigit(1, 2, 9));
+        assertEquals(9, state.unsetDigit(1, 2));
+        assertFalse(state.isDigitSet(1, 2));
+        assertFalse(state.isDigitExcluded(1, 7, 9));
+        assertFalse(state.isDigitExcluded(7, 2, 9));
+        assertFalse(state.isDigitExcluded(0, 0, 9));
+        assertEquals(new SudokuState(), state);
+    }
+
+    @Test
+    public void testUnsetEmptyCell() {
+        assertEquals(0, state.unsetDigit(1, 2));
+        assertEquals(new SudokuState(), state);
+    }
+
+    @Test
+    public void testUnsetKeepsOtherExclusions() {
+        assertTrue(state.setDigit(1, 2, 9));
+        assertTrue(state.setDigit(4, 7, 9));
+        assertEquals(9, state.unsetDigit(1, 2));
+        assertTrue(state.isDigitExcluded(1, 7, 9));
+        assertFalse(state.isDigitExcluded(1, 6, 9));
+        assertTrue(state.setDigit(1, 2, 9));
+    }
+
+    @Test
+    public void testCandidateMask() {
+        assertEquals(0x3FE, state.getCandidateMask(0, 0));
+        assertTrue(state.setDigit(1, 2, 9));
+        assertTrue(state.setDigit(0, 5, 1));
+        assertEquals(0x3FE & ~(1 << 9) & ~(1 << 1), state.getCandidateMask(0, 0));
+        assertEquals(0, state.getCandidateMask(1, 2));
+        assertEquals(7, state.getNumberOfPossibleDigits(0, 0));
+        assertEquals(2, state.getNumberOfExcludedDigits(0, 0));
+    }
+
+    /**
+     * Finds the most constrained cell by scanning the table.
+     */
+    private static int scanMostConstrainedCell(SudokuState state) {
+        int result = -1;
+        int noPossibleDigits = Integer.MAX_VALUE;
+        for (int cell = 0; cell < state.getSize() * state.getSize(); cell++) {
+            int count = state.getNumberOfPossibleDigits(cell / state.getSize(), cell % state.getSize());
+            if (count >= 0 && count < noPossibleDigits) {
+                result = cell;
+                noPossibleDigits = count;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testMostConstrainedCell() {
+        assertEquals(0, state.getMostConstrainedCell());
+        for (int blockSize = 2; blockSize <= 4; blockSize++) {
+            Random random = new Random(blockSize);
+            SudokuState table = new SudokuState(blockSize);
+            int size = table.getSize();
+            for (int i = 0; i < 5000; i++) {
+                int row = random.nextInt(size);
+                int column = random.nextInt(size);
+                if (random.nextInt(3) == 0) {
+                    table.unsetDigit(row, column);
+                }
+                else {
+                    table.setDigit(row, column, 1 + random.nextInt(size));
+                }
+                assertEquals(scanMostConstrainedCell(table), table.getMostConstrainedCell());
+                if (i % 100 == 0) {
+                    table = table.copy();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargerTable() {
+        SudokuState large = new SudokuState(4);
+        assertEquals(16, large.getSize());
+        assertEquals(4, large.getBlockSize());
+        assertEquals(0x1FFFEL, large.getCandidateMask(0, 0));
+        assertTrue(large.setDigit(0, 0, 16));
+        assertFalse(large.setDigit(3, 3, 16));
+        assertTrue(large.setDigit(4, 4, 16));
+        assertFalse(large.setDigit(5, 5, 17));
+        assertEquals(15, large.getNumberOfPossibleDigits(0, 5));
+        assertEquals(large, large.copy());
+    }
+
+    @Test
+    public void testLargestTable() {
+        SudokuState largest = new SudokuState(SudokuState.MAX_BLOCK_SIZE);
+        assertEquals(49, largest.getSize());
+        assertTrue(largest.setDigit(48, 48, 49));
+        assertTrue(largest.isDigitExcluded(0, 48, 49));
+        assertTrue(largest.isDigitExcluded(42, 42, 49));
+        assertFalse(largest.isDigitExcluded(0, 0, 49));
+        assertEquals(48, Long.bitCount(largest.getCandidateMask(48, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedBlockSize() {
+        new SudokuState(SudokuState.MAX_BLOCK_SIZE + 1);
+    }
+
+}
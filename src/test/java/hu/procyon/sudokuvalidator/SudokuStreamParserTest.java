@@ -0,0 +1,108 @@
+package hu.procyon.sudokuvalidator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * SudokuStreamParserTest
+ */
+public class SudokuStreamParserTest {
+
+    private static final String WIKIPEDIA_ONE_LINE =
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    private static final String WIKIPEDIA_COMMA =
+        "5,3, , ,7\n6, , ,1,9,5\n ,9,8, , , , ,6\n8, , , ,6, , , ,3\n4, , ,8, ,3, , ,1\n"
+        + "7, , , ,2, , , ,6\n ,6, , , , ,2,8\n , , ,4,1,9, , ,5\n , , , ,8, , ,7,9";
+
+    @Test
+    public void testOneLineRecords() throws Exception {
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(
+            WIKIPEDIA_ONE_LINE + "\n" + WIKIPEDIA_ONE_LINE.replace('.', '0') + "\n"));
+        SudokuState first = parser.next();
+        SudokuState second = parser.next();
+        assertNull(parser.next());
+        assertEquals(5, first.getDigit(0, 0));
+        assertEquals(9, first.getDigit(8, 8));
+        assertEquals(0, first.getDigit(0, 2));
+        assertEquals(first, second);
+        assertEquals(2, parser.getNumberOfRecords());
+    }
+
+    @Test
+    public void testMixedRecords() throws Exception {
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(
+            "\n" + WIKIPEDIA_COMMA + "\n\n\n" + WIKIPEDIA_ONE_LINE + "\n\n" + WIKIPEDIA_COMMA));
+        SudokuState first = parser.next();
+        assertEquals(1, parser.getRecordLineNumber());
+        SudokuState second = parser.next();
+        assertEquals(12, parser.getRecordLineNumber());
+        SudokuState third = parser.next();
+        assertEquals(14, parser.getRecordLineNumber());
+        assertNull(parser.next());
+        assertEquals(first, second);
+        assertEquals(first, third);
+    }
+
+    @Test
+    public void testEmptyRowInsideRecord() throws Exception {
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(
+            "1\n\n\n\n\n\n\n\n9\n\n2"));
+        SudokuState first = parser.next();
+        assertEquals(1, first.getDigit(0, 0));
+        assertEquals(9, first.getDigit(8, 0));
+        SudokuState second = parser.next();
+        assertEquals(2, second.getDigit(0, 0));
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void testContinueAfterInvalidRecord() throws Exception {
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(
+            WIKIPEDIA_ONE_LINE.replace('9', 'x') + "\n" + WIKIPEDIA_ONE_LINE));
+        try {
+            parser.next();
+            fail();
+        } catch (SudokuParseException e) {
+            assertEquals(0, e.getLine());
+            assertEquals(WIKIPEDIA_ONE_LINE.indexOf('9'), e.getPosition());
+        }
+        assertEquals(5, parser.next().getDigit(0, 0));
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void testLargerOneLineRecords() throws Exception {
+        SudokuState expected = new SudokuStateParser(4).parseFile(new File("example_puzzles", "16x16"));
+        StringBuilder record = new StringBuilder();
+        for (int row = 0; row < 16; row++) {
+            for (int column = 0; column < 16; column++) {
+                record.append(".123456789ABCDEFG".charAt(expected.getDigit(row, column)));
+            }
+        }
+        String oneLine = record.toString();
+        SudokuStreamParser parser = new SudokuStreamParser(new StringReader(
+            oneLine + "\n" + oneLine.toLowerCase() + "\n" + oneLine.replace('.', 'H')), 4);
+        assertEquals(expected, parser.next());
+        assertEquals(expected, parser.next());
+        try {
+            parser.next();
+            fail();
+        } catch (SudokuParseException e) {
+            assertEquals(2, e.getLine());
+            assertEquals(oneLine.indexOf('.'), e.getPosition());
+        }
+        assertNull(parser.next());
+    }
+
+    @Test(expected = SudokuStateException.class)
+    public void testInvalidState() throws Exception {
+        new SudokuStreamParser(new StringReader("55" + WIKIPEDIA_ONE_LINE.substring(2))).next();
+    }
+}